@@ -0,0 +1,224 @@
+package com.benkearns.fruitbotchat;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// Immutable view of config.yml. The plugin publishes one instance through a volatile field
+// and listeners read it per event, so a confirmed change applies without a reload.
+// The rate-limit and wiki sections are checked as they are read: a value of the wrong type or
+// out of range, or a key nothing reads (usually a typo), is reported in `warnings` and the
+// default or nearest bound is used instead.
+public final class BotConfig {
+    private static final long MAX_DELAY_SECONDS = 24L * 60L * 60L;
+    private static final long MAX_RESPONSE_DELAY_MS = 60_000L;
+    private static final Set<String> WIKI_SOURCES = Set.of("http", "xml-dump", "html-dir");
+    private static final String DEFAULT_WIKI_URL = "https://fruitservers.net/wiki";
+    private static final Map<String, Class<?>> EDITABLE = Map.of(
+        "onboarding.welcome-enabled", Boolean.class,
+        "onboarding.welcome-back-enabled", Boolean.class,
+        "onboarding.checkup-enabled", Boolean.class,
+        "onboarding.welcome-delay-seconds", Long.class,
+        "onboarding.welcome-back-delay-seconds", Long.class,
+        "onboarding.checkup-delay-seconds", Long.class,
+        "xray-tracker-enabled", Boolean.class,
+        "spy-enabled", Boolean.class,
+        "fruitbot-enabled", Boolean.class,
+        "response-delay-ms", Long.class
+    );
+
+    public final long cooldownSeconds;
+    public final Component cooldownMessage;
+    public final String playerLogFormat;
+    public final long responseDelayMs;
+    public final boolean xrayTrackerEnabled;
+    public final boolean spyEnabled;
+    public final boolean fruitbotEnabled;
+    public final boolean welcomeEnabled;
+    public final boolean welcomeBackEnabled;
+    public final boolean checkupEnabled;
+    public final long welcomeDelayTicks;
+    public final long welcomeBackDelayTicks;
+    public final long checkupDelayTicks;
+    public final long unknownMessagesMaxFileBytes;
+
+    public final double replyGlobalPerSecond;
+    public final int replyGlobalBurst;
+    public final double replyPlayerPerSecond;
+    public final int replyPlayerBurst;
+    public final double wikiGlobalPerSecond;
+    public final int wikiGlobalBurst;
+    public final double wikiPlayerPerSecond;
+    public final int wikiPlayerBurst;
+    public final int maxPendingReplies;
+
+    public final String wikiSource;
+    public final long wikiRefreshMillis;
+    public final long wikiRetryMillis;
+    public final long wikiAnswerBudgetNanos;
+    final WikiCrawler.Settings wikiCrawl;
+    public final String wikiXmlDump;
+    public final String wikiHtmlDir;
+    public final int wikiLocalThreads;
+    public final int wikiCacheMaxEntries;
+    public final long wikiCacheTtlMillis;
+    public final long wikiCacheNegativeTtlMillis;
+
+    public final List<String> warnings = new ArrayList<>();
+    private final Set<String> known = new HashSet<>();
+
+    private BotConfig(ConfigurationSection cfg) {
+        cooldownSeconds = Math.max(0L, cfg.getLong("cooldown-seconds", 3));
+        cooldownMessage = ChatTemplates.parse(cfg.getString("messages.cooldown", "&cPlease wait before messaging FruitBot again!"));
+        // Only used for the console line, so colour codes are dropped once here rather than per message
+        playerLogFormat = ChatTemplates.plain(ChatTemplates.parse(cfg.getString("formats.player-message", "%player%: %message%")));
+        responseDelayMs = clamp(cfg.getLong("response-delay-ms", 1000L), MAX_RESPONSE_DELAY_MS);
+        xrayTrackerEnabled = cfg.getBoolean("xray-tracker-enabled", true);
+        spyEnabled = cfg.getBoolean("spy-enabled", true);
+        fruitbotEnabled = cfg.getBoolean("fruitbot-enabled", true);
+        welcomeEnabled = cfg.getBoolean("onboarding.welcome-enabled", true);
+        welcomeBackEnabled = cfg.getBoolean("onboarding.welcome-back-enabled", true);
+        checkupEnabled = cfg.getBoolean("onboarding.checkup-enabled", true);
+        welcomeDelayTicks = clamp(cfg.getLong("onboarding.welcome-delay-seconds", 10L), MAX_DELAY_SECONDS) * 20L;
+        welcomeBackDelayTicks = clamp(cfg.getLong("onboarding.welcome-back-delay-seconds", 5L), MAX_DELAY_SECONDS) * 20L;
+        checkupDelayTicks = clamp(cfg.getLong("onboarding.checkup-delay-seconds", 900L), MAX_DELAY_SECONDS) * 20L;
+        unknownMessagesMaxFileBytes = Math.max(64L, cfg.getLong("unknown-messages.max-file-kb", 5120L)) * 1024L;
+
+        replyGlobalPerSecond = number(cfg, "rate-limit.reply.global-per-second", 20, 0.001, 1000);
+        replyGlobalBurst = integer(cfg, "rate-limit.reply.global-burst", 40, 1, 10_000);
+        replyPlayerPerSecond = number(cfg, "rate-limit.reply.player-per-second", 0.5, 0.001, 1000);
+        replyPlayerBurst = integer(cfg, "rate-limit.reply.player-burst", 5, 1, 10_000);
+        wikiGlobalPerSecond = number(cfg, "rate-limit.wiki.global-per-second", 2, 0.001, 1000);
+        wikiGlobalBurst = integer(cfg, "rate-limit.wiki.global-burst", 5, 1, 10_000);
+        wikiPlayerPerSecond = number(cfg, "rate-limit.wiki.player-per-second", 0.1, 0.001, 1000);
+        wikiPlayerBurst = integer(cfg, "rate-limit.wiki.player-burst", 2, 1, 10_000);
+        maxPendingReplies = integer(cfg, "rate-limit.max-pending", 64, 1, 10_000);
+
+        String baseUrl = text(cfg, "wiki.base-url", DEFAULT_WIKI_URL);
+        if (!baseUrl.startsWith("http://") && !baseUrl.startsWith("https://")) {
+            warnings.add("wiki.base-url must start with http:// or https://, using " + DEFAULT_WIKI_URL);
+            baseUrl = DEFAULT_WIKI_URL;
+        }
+        while (baseUrl.endsWith("/")) baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+        wikiSource = choice(cfg, "wiki.source", "http", WIKI_SOURCES);
+        wikiRefreshMillis = TimeUnit.MINUTES.toMillis(integer(cfg, "wiki.refresh-minutes", 60, 1, 7 * 24 * 60));
+        wikiRetryMillis = TimeUnit.MINUTES.toMillis(integer(cfg, "wiki.retry-minutes", 5, 1, 24 * 60));
+        wikiAnswerBudgetNanos = TimeUnit.MILLISECONDS.toNanos(integer(cfg, "wiki.answer-budget-ms", 250, 1, 10_000));
+        wikiCrawl = new WikiCrawler.Settings(baseUrl,
+            integer(cfg, "wiki.crawl.max-pages", 50, 1, 100_000),
+            integer(cfg, "wiki.crawl.max-depth", 2, 0, 20),
+            integer(cfg, "wiki.crawl.concurrency", 4, 1, 64),
+            integer(cfg, "wiki.crawl.max-page-kb", 512, 1, 64 * 1024) * 1024,
+            TimeUnit.SECONDS.toMillis(integer(cfg, "wiki.crawl.max-seconds", 60, 1, 3600)),
+            integer(cfg, "wiki.breaker.failures", 5, 1, 1000),
+            TimeUnit.SECONDS.toMillis(integer(cfg, "wiki.breaker.open-seconds", 300, 1, 24 * 60 * 60)));
+        wikiXmlDump = text(cfg, "wiki.local.xml-dump", "wiki-dump.xml");
+        wikiHtmlDir = text(cfg, "wiki.local.html-dir", "wiki-html");
+        wikiLocalThreads = integer(cfg, "wiki.local.threads", Math.min(4, Runtime.getRuntime().availableProcessors()), 1, 64);
+        wikiCacheMaxEntries = integer(cfg, "wiki.cache.max-entries", 512, 1, 100_000);
+        wikiCacheTtlMillis = TimeUnit.MINUTES.toMillis(integer(cfg, "wiki.cache.ttl-minutes", 60, 1, 7 * 24 * 60));
+        wikiCacheNegativeTtlMillis = TimeUnit.SECONDS.toMillis(integer(cfg, "wiki.cache.negative-ttl-seconds", 120, 1, 24 * 60 * 60));
+
+        reportUnknown(cfg, "rate-limit");
+        reportUnknown(cfg, "wiki");
+    }
+
+    public static BotConfig from(ConfigurationSection cfg) {
+        return new BotConfig(cfg);
+    }
+
+    // Returns the value to store for an admin edit, or throws if the path or value is not allowed
+    public static Object validate(String path, Object value) {
+        Class<?> type = EDITABLE.get(path);
+        if (type == null) {
+            throw new IllegalArgumentException(path + " cannot be changed live");
+        }
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException(path + " expects a " + type.getSimpleName().toLowerCase());
+        }
+        if (value instanceof Long) {
+            long n = (Long) value;
+            long max = "response-delay-ms".equals(path) ? MAX_RESPONSE_DELAY_MS : MAX_DELAY_SECONDS;
+            if (n < 0L || n > max) {
+                throw new IllegalArgumentException(path + " must be between 0 and " + max);
+            }
+        }
+        return value;
+    }
+
+    private double number(ConfigurationSection cfg, String path, double def, double min, double max) {
+        known.add(path);
+        Object value = cfg.get(path);
+        if (value == null) return def;
+        if (!(value instanceof Number)) {
+            warnings.add(path + " must be a number, using " + def);
+            return def;
+        }
+        double n = ((Number) value).doubleValue();
+        if (n < min || n > max) {
+            double bounded = Math.max(min, Math.min(max, n));
+            warnings.add(path + " must be between " + min + " and " + max + ", using " + bounded);
+            return bounded;
+        }
+        return n;
+    }
+
+    private int integer(ConfigurationSection cfg, String path, int def, int min, int max) {
+        known.add(path);
+        Object value = cfg.get(path);
+        if (value == null) return def;
+        if (!(value instanceof Integer || value instanceof Long)) {
+            warnings.add(path + " must be a whole number, using " + def);
+            return def;
+        }
+        long n = ((Number) value).longValue();
+        if (n < min || n > max) {
+            int bounded = (int) Math.max(min, Math.min(max, n));
+            warnings.add(path + " must be between " + min + " and " + max + ", using " + bounded);
+            return bounded;
+        }
+        return (int) n;
+    }
+
+    private String text(ConfigurationSection cfg, String path, String def) {
+        known.add(path);
+        Object value = cfg.get(path);
+        if (value == null) return def;
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            warnings.add(path + " must be a non-empty string, using " + def);
+            return def;
+        }
+        return ((String) value).trim();
+    }
+
+    private String choice(ConfigurationSection cfg, String path, String def, Set<String> allowed) {
+        String value = text(cfg, path, def).toLowerCase(Locale.ROOT);
+        if (!allowed.contains(value)) {
+            warnings.add(path + " must be one of " + String.join(", ", new TreeSet<>(allowed)) + ", using " + def);
+            return def;
+        }
+        return value;
+    }
+
+    private void reportUnknown(ConfigurationSection cfg, String root) {
+        ConfigurationSection section = cfg.getConfigurationSection(root);
+        if (section == null) return;
+        for (String key : section.getKeys(true)) {
+            if (!section.isConfigurationSection(key) && !known.contains(root + "." + key)) {
+                warnings.add("Unknown setting " + root + "." + key + " is ignored");
+            }
+        }
+    }
+
+    private static long clamp(long value, long max) {
+        return Math.max(0L, Math.min(max, value));
+    }
+}
@@ -0,0 +1,39 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Hashes a page body as it is read and reports end of stream once more than maxBytes arrive,
+// so crawled and local pages are size-capped and fingerprinted without buffering them
+final class CappedStream extends FilterInputStream {
+    private final int maxBytes;
+    long hash = WikiPage.HASH_SEED;
+    long count;
+    boolean exceeded;
+
+    CappedStream(InputStream in, int maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (exceeded) return -1;
+        int n = super.read(b, off, len);
+        if (n <= 0) return n;
+        count += n;
+        if (count > maxBytes) {
+            exceeded = true;
+            return -1;
+        }
+        hash = WikiPage.hash(hash, b, off, n);
+        return n;
+    }
+}
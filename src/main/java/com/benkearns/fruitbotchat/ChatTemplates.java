@@ -0,0 +1,79 @@
+package com.benkearns.fruitbotchat;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+
+// Every fixed line and responses.yml entry is parsed into an Adventure component once; the
+// send path only stitches prebuilt components together.
+final class ChatTemplates {
+    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.legacyAmpersand();
+    private static final String PLAYER_PLACEHOLDER = "%player%";
+
+    static final Component BOT_PREFIX = parse("&6[&cFruitbot &6-> &cMe&6] ");
+    static final Component ME_PREFIX = parse("&6[&cMe &6-> &cFruitbot&6] ");
+    static final Component SPY_PREFIX = parse("&8[BotSpy] ");
+
+    private ChatTemplates() {}
+
+    static Component parse(String legacy) {
+        return LEGACY.deserialize(legacy == null ? "" : legacy);
+    }
+
+    static String plain(Component component) {
+        return PlainTextComponentSerializer.plainText().serialize(component);
+    }
+
+    static Component bot(String text) {
+        return fromBot(Component.text(text, NamedTextColor.WHITE));
+    }
+
+    static Component fromBot(Component body) {
+        return Component.text().append(BOT_PREFIX).append(body).build();
+    }
+
+    static Component toBot(String text) {
+        return Component.text().append(ME_PREFIX).append(Component.text(text, NamedTextColor.WHITE)).build();
+    }
+
+    static Component spy(String text) {
+        return Component.text().append(SPY_PREFIX).append(Component.text(text, NamedTextColor.GRAY)).build();
+    }
+
+    static final class Template {
+        final String plain;
+        private final Component line;
+        private final boolean hasPlayer;
+
+        private Template(String plain, Component line, boolean hasPlayer) {
+            this.plain = plain;
+            this.line = line;
+            this.hasPlayer = hasPlayer;
+        }
+
+        // A bot reply parsed from legacy &-codes, e.g. a responses.yml entry
+        static Template botLine(String legacy) {
+            Component body = parse("&f" + legacy);
+            return new Template(ChatTemplates.plain(body), fromBot(body), legacy.contains(PLAYER_PLACEHOLDER));
+        }
+
+        // Text that must not be interpreted as color codes, e.g. a wiki summary
+        static Template literal(String text) {
+            return new Template(text, bot(text), false);
+        }
+
+        Component render(String playerName) {
+            if (!hasPlayer) return line;
+            return line.replaceText(TextReplacementConfig.builder()
+                .matchLiteral(PLAYER_PLACEHOLDER)
+                .replacement(playerName)
+                .build());
+        }
+
+        String plain(String playerName) {
+            return hasPlayer ? plain.replace(PLAYER_PLACEHOLDER, playerName) : plain;
+        }
+    }
+}
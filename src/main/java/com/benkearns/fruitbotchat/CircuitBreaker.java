@@ -0,0 +1,72 @@
+package com.benkearns.fruitbotchat;
+
+// Consecutive-failure circuit breaker for the wiki host. After `threshold` failures in a row it
+// opens and refuses calls for `openMillis`; then one probe call is let through, and its outcome
+// either closes the circuit or opens it for another period. Each call reports back with the
+// ticket allow() gave it; outcomes of calls sent before the last trip or probe are ignored, so
+// a slow response from an earlier call cannot close or re-trip the circuit.
+final class CircuitBreaker {
+    private final int threshold;
+    private final long openMillis;
+    private int failures;
+    private long openUntil;
+    private long probeStartedAt;
+    private long trips;
+    private long generation;
+
+    CircuitBreaker(int threshold, long openMillis) {
+        this.threshold = threshold;
+        this.openMillis = openMillis;
+    }
+
+    // Ticket to pass to success or failure, or -1 when the call is refused
+    synchronized long allow() {
+        if (openUntil == 0) return generation;
+        long now = System.currentTimeMillis();
+        if (now < openUntil) return -1;
+        // A probe that never reported back (cancelled with its crawl) does not block the next one
+        if (probeStartedAt != 0 && now - probeStartedAt < openMillis) return -1;
+        probeStartedAt = now;
+        return ++generation;
+    }
+
+    synchronized void success(long ticket) {
+        if (ticket != generation) return;
+        failures = 0;
+        openUntil = 0;
+        probeStartedAt = 0;
+    }
+
+    synchronized void failure(long ticket) {
+        if (ticket != generation) return;
+        if (probeStartedAt != 0) {
+            probeStartedAt = 0;
+            trip();
+        } else if (openUntil == 0 && ++failures >= threshold) {
+            trip();
+        }
+    }
+
+    synchronized boolean isOpen() {
+        return openUntil != 0;
+    }
+
+    private void trip() {
+        openUntil = System.currentTimeMillis() + openMillis;
+        failures = 0;
+        trips++;
+        generation++;
+    }
+
+    synchronized String describe() {
+        String state;
+        if (openUntil == 0) {
+            state = "closed";
+        } else if (probeStartedAt != 0) {
+            state = "probing";
+        } else {
+            state = "open, probe in " + Math.max(0, (openUntil - System.currentTimeMillis()) / 1000) + "s";
+        }
+        return state + " (tripped " + trips + "x)";
+    }
+}
@@ -0,0 +1,36 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Where WikiService gets its pages: the live HTTP crawl (WikiCrawler), a MediaWiki XML export
+// (MediaWikiDumpSource) or a directory of saved HTML pages (HtmlDirectorySource), picked by
+// wiki.source. A source hands back previous pages it can tell are unchanged, so the corpus
+// build only re-indexes what moved; an empty result keeps the current corpus.
+interface CorpusSource {
+    Map<String, WikiPage> load(Map<String, WikiPage> previous) throws InterruptedException;
+
+    String describe();
+
+    default void shutdown() {
+    }
+
+    // Pages from parallel tasks, keyed by URL in submission order; a task that failed is left out
+    static Map<String, WikiPage> collect(List<Future<WikiPage>> tasks, Logger logger) throws InterruptedException {
+        Map<String, WikiPage> pages = new LinkedHashMap<>();
+        for (Future<WikiPage> task : tasks) {
+            try {
+                WikiPage page = task.get();
+                if (page != null) pages.put(page.url, page);
+            } catch (ExecutionException e) {
+                logger.log(Level.WARNING, "[Wiki] Could not read a page", e.getCause());
+            }
+        }
+        return pages;
+    }
+}
@@ -1,5 +1,6 @@
 package com.benkearns.fruitbotchat;
 
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -7,153 +8,209 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.regex.Pattern;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.text.SimpleDateFormat;
 
 public final class FruitbotChat extends JavaPlugin {
+    private static final Component DISABLED_MESSAGE = Component.text("Fruitbot is currently disabled. Contact staff for more information.");
+    private static final ChatTemplates.Template FALLBACK_RESPONSE = ChatTemplates.Template.botLine("I'm not sure how to respond to that. Can you try asking me something else?");
+    private static final Component CANCELLED_MESSAGE = ChatTemplates.bot("Cancelled.");
+    private static final Set<String> SMALL_TALK = new HashSet<>(Arrays.asList(
+            "y", "n", "yes", "no", "ok", "okay", "k", "thank", "thanks", "ty", "bye"
+    ));
     private static FruitbotChat instance;
     private FileConfiguration config;
-    private FileConfiguration responses;
-    private FileConfiguration unknownMessages;
-    private File unknownMessagesFile;
+    private volatile ResponseCatalog responses = ResponseCatalog.EMPTY;
+    private ResponsesWatcher responsesWatcher;
+    private UnknownMessageJournal unknownMessages;
+    private final UnansweredTopics unansweredTopics = new UnansweredTopics();
     private WikiService wikiService;
-    private final Map<UUID, UUID> lastMessagedBy = new HashMap<>();
-    private final Map<UUID, Long> cooldowns = new HashMap<>();
-    private final Set<UUID> lastTargetWasFruitbot = new HashSet<>();
-    private final Set<UUID> staffPendingReview = ConcurrentHashMap.newKeySet();
-    private long cooldownTime;
-    private String cooldownMessage;
-    private String noPermissionMessage;
-    private String playerOnlyMessage;
-    private String noTargetMessage;
-    private String responseFormat;
-    private String playerFormat;
-    private long responseDelayMs;
-    private boolean xrayTrackerEnabled;
+    private ExecutorService replyExecutor;
+    private SocialSpyRegistry spyRegistry;
+    private ReplyLimiter replyLimiter;
+    private PlayerSessions sessions;
+    private volatile BotConfig settings;
+    private ExecutorService configWriter;
     private volatile boolean reviewNoticeActive;
     private OnboardingListener onboardingListener;
-    private final Set<UUID> pendingMuteConfirm = ConcurrentHashMap.newKeySet();
-    private boolean spyEnabled;
-    private boolean fruitbotEnabled;
-    private final Map<UUID, PendingConfigChange> pendingConfig = new ConcurrentHashMap<>();
-    private final Set<UUID> pendingReload = ConcurrentHashMap.newKeySet();
 
     @Override
     public void onEnable() {
         instance = this;
         saveDefaultConfig();
         loadResponses();
-        loadUnknownMessages();
-        loadConfigValues();
-        wikiService = new WikiService();
+        settings = BotConfig.from(getConfig());
+        for (String warning : settings.warnings) {
+            getLogger().warning("config.yml: " + warning);
+        }
+        configWriter = Executors.newSingleThreadExecutor(namedThreadFactory("Fruitbot-ConfigWriter"));
+        unknownMessages = new UnknownMessageJournal(new File(getDataFolder(), "unknown-messages"),
+            settings.unknownMessagesMaxFileBytes, getLogger());
+        wikiService = new WikiService(getDataFolder(), getLogger(), settings);
+        replyExecutor = Executors.newFixedThreadPool(2, namedThreadFactory("Fruitbot-Reply"));
+        replyLimiter = new ReplyLimiter(settings);
+        sessions = new PlayerSessions(this);
+        Bukkit.getPluginManager().registerEvents(sessions, this);
         Bukkit.getPluginManager().registerEvents(new FruitbotCommandListener(this), this);
         OnboardingListener onboarding = new OnboardingListener(this);
         Bukkit.getPluginManager().registerEvents(onboarding, this);
         this.onboardingListener = onboarding;
         Bukkit.getPluginManager().registerEvents(new FruitbotTabCompleteListener(), this);
         Bukkit.getPluginManager().registerEvents(new XrayTrackerListener(this), this);
+        spyRegistry = new SocialSpyRegistry(this);
+        Bukkit.getPluginManager().registerEvents(spyRegistry, this);
         getLogger().info("FruitbotChat has been enabled!");
     }
 
     @Override
     public void onDisable() {
+        if (responsesWatcher != null) {
+            responsesWatcher.close();
+        }
+        if (replyExecutor != null) {
+            replyExecutor.shutdownNow();
+        }
+        if (unknownMessages != null) {
+            unknownMessages.close();
+        }
+        if (configWriter != null) {
+            configWriter.shutdown();
+            try {
+                configWriter.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         if (wikiService != null) {
             wikiService.shutdown();
         }
         getLogger().info("FruitbotChat has been disabled!");
     }
     
-    void processMessage(Player player, String message) {
-        if (!fruitbotEnabled) {
-            player.sendMessage("Fruitbot is currently disabled. Contact staff for more information.");
+    void processMessage(Player player, TextAnalyzer.Analysis text) {
+        String message = text.raw;
+        BotConfig cfg = settings;
+        if (!cfg.fruitbotEnabled) {
+            player.sendMessage(DISABLED_MESSAGE);
             return;
         }
-        lastMessagedBy.put(player.getUniqueId(), player.getUniqueId());
-        lastTargetWasFruitbot.add(player.getUniqueId());
-        String echoToBot = color("&6[&cMe &6-> &cFruitbot&6] &f" + message);
-        String playerMessage = color(playerFormat.replace("%player%", player.getName()).replace("%message%", message));
-
-        Bukkit.getOnlinePlayers().stream()
-             .filter(p -> !p.getUniqueId().equals(player.getUniqueId()))
-             .forEach(p -> {
-                 if (spyEnabled && p.hasPermission("essentials.socialspy")) {
-                     String spy = color("&8[BotSpy] &7" + player.getName() + " -> Fruitbot: " + ChatColor.stripColor(message));
-                     p.sendMessage(spy);
-                 }
-             });
-
-        getLogger().info("[FruitBot] " + ChatColor.stripColor(playerMessage));
+        PlayerSessions.PlayerSession session = sessions.get(player.getUniqueId());
+        session.fruitbotSender = true;
+        session.lastTargetFruitbot = true;
+        Component echoToBot = ChatTemplates.toBot(message);
+
+        if (cfg.spyEnabled) {
+            spyRegistry.broadcast(player.getUniqueId(), ChatTemplates.spy(player.getName() + " -> Fruitbot: " + ChatColor.stripColor(message)));
+        }
+
+        getLogger().info("[FruitBot] " + cfg.playerLogFormat.replace("%player%", player.getName()).replace("%message%", message));
         player.sendMessage(echoToBot);
-        long delayTicks = Math.max(0L, responseDelayMs) / 50L;
-        Bukkit.getScheduler().runTaskLater(this, () -> {
-            ResponseResult result = getResponseWithKey(message);
-            if (result != null && "default".equalsIgnoreCase(result.key)) {
-                logUnknownMessage(player, message);
-            }
-            if (result != null && "mute".equalsIgnoreCase(result.key)) {
-                pendingMuteConfirm.add(player.getUniqueId());
+        long startedAt = System.currentTimeMillis();
+        CompletableFuture<ResponseResult> pending;
+        if (replyLimiter.tryAdmitReply(player.getUniqueId())) {
+            pending = respondAsync(player.getUniqueId(), text);
+            pending.whenComplete((result, error) -> replyLimiter.exitPending());
+        } else {
+            pending = CompletableFuture.completedFuture(shedResult(responses, "shed"));
+        }
+        pending.whenComplete((result, error) -> {
+            if (error != null) {
+                getLogger().warning("Failed building a reply for " + player.getName() + ": " + error.getMessage());
             }
-            String formattedResponse = color("&6[&cFruitbot &6-> &cMe&6] &f" + (result == null ? "" : result.text));
-            player.sendMessage(formattedResponse);
-            Bukkit.getOnlinePlayers().stream()
-                .filter(p -> !p.getUniqueId().equals(player.getUniqueId()))
-                .forEach(p -> {
-                    if (spyEnabled && p.hasPermission("essentials.socialspy")) {
-                        String spy = color("&8[BotSpy] &7Fruitbot -> " + player.getName() + ": " + ChatColor.stripColor(result == null ? "" : result.text));
-                        p.sendMessage(spy);
-                    }
-                });
-        }, delayTicks);
+            ResponseResult reply = result == null ? defaultResult(responses) : result;
+            long remainingMs = Math.max(0L, settings.responseDelayMs - (System.currentTimeMillis() - startedAt));
+            if (!isEnabled()) return;
+            Bukkit.getScheduler().runTaskLater(this, () -> deliverResponse(player, text, reply), remainingMs / 50L);
+        });
     }
     
-    private ResponseResult getResponseWithKey(String originalMessage) {
-        String msg = originalMessage == null ? "" : originalMessage.toLowerCase(Locale.ROOT);
-        boolean foundMatch = false;
-        if (responses.getConfigurationSection("responses") != null) {
-            for (String key : responses.getConfigurationSection("responses").getKeys(false)) {
-                String k = key.toLowerCase(Locale.ROOT);
-                String pattern = "(?i)(?<![A-Za-z0-9])" + Pattern.quote(k) + "(?![A-Za-z0-9])";
-                if (Pattern.compile(pattern).matcher(msg).find()) {
-                    List<String> possibleResponses = responses.getStringList("responses." + key);
-                    if (!possibleResponses.isEmpty()) {
-                        String text = possibleResponses.get(new Random().nextInt(possibleResponses.size()));
-                        foundMatch = true;
-                        return new ResponseResult(key, text);
-                    }
-                }
-            }
+    CompletableFuture<ResponseResult> respondAsync(UUID playerId, TextAnalyzer.Analysis text) {
+        return CompletableFuture.supplyAsync(() -> getResponseWithKey(playerId, text), replyExecutor);
+    }
+    
+    private void deliverResponse(Player player, TextAnalyzer.Analysis text, ResponseResult result) {
+        if (!player.isOnline()) return;
+        if ("default".equalsIgnoreCase(result.key)) {
+            logUnknownMessage(player, text);
+        }
+        if ("mute".equalsIgnoreCase(result.key)) {
+            sessions.get(player.getUniqueId()).pendingMute = true;
+        }
+        player.sendMessage(result.template.render(player.getName()));
+        if (settings.spyEnabled) {
+            spyRegistry.broadcast(player.getUniqueId(), ChatTemplates.spy("Fruitbot -> " + player.getName() + ": " + result.template.plain(player.getName())));
+        }
+    }
+    
+    private ResponseResult getResponseWithKey(UUID playerId, TextAnalyzer.Analysis text) {
+        ResponseCatalog catalog = responses;
+        int id = catalog.intents.best(text);
+        if (id >= 0) {
+            List<ChatTemplates.Template> possibleResponses = catalog.texts.get(id);
+            return new ResponseResult(catalog.keys.get(id), pick(possibleResponses));
+        }
+        int[] fuzzy = catalog.fuzzy.bestMatch(text, word -> wikiService != null && wikiService.knowsWord(word));
+        if (fuzzy != null) {
+            String key = catalog.keys.get(fuzzy[0]);
+            getLogger().info("[FuzzyMatch] '" + text.lower.substring(fuzzy[2], fuzzy[3]) + "' -> " + key + " (distance " + fuzzy[1] + ")");
+            return new ResponseResult(key, pick(catalog.texts.get(fuzzy[0])));
         }
         
-        if (wikiService != null && shouldTryWikiLookup(originalMessage)) {
-            getLogger().info("[WikiDebug] Attempting wiki lookup for: " + originalMessage);
-            String wikiResponse = wikiService.searchAndSummarize(originalMessage);
+        if (wikiService != null && shouldTryWikiLookup(text)) {
+            if (!replyLimiter.tryAcquireWiki(playerId)) {
+                return shedResult(catalog, "wiki-shed");
+            }
+            getLogger().info("[WikiDebug] Attempting wiki lookup for: " + text.raw);
+            String wikiResponse = wikiService.searchAndSummarize(text);
             if (wikiResponse != null && !wikiResponse.trim().isEmpty()) {
                 getLogger().info("[WikiDebug] Found wiki response: " + wikiResponse);
-                return new ResponseResult("wiki", wikiResponse);
+                return new ResponseResult("wiki", ChatTemplates.Template.literal(wikiResponse));
             } else {
-                getLogger().info("[WikiDebug] No wiki response found for: " + originalMessage);
+                getLogger().info("[WikiDebug] No wiki response found for: " + text.raw);
             }
         }
         
-        List<String> defaultResponses = responses.getStringList("default");
-        if (!defaultResponses.isEmpty()) {
-            return new ResponseResult("default", defaultResponses.get(new Random().nextInt(defaultResponses.size())));
+        return defaultResult(catalog);
+    }
+    
+    private ResponseResult defaultResult(ResponseCatalog catalog) {
+        if (!catalog.defaults.isEmpty()) {
+            return new ResponseResult("default", pick(catalog.defaults));
         }
-        return new ResponseResult("default", "I'm not sure how to respond to that. Can you try asking me something else?");
+        return new ResponseResult("default", FALLBACK_RESPONSE);
     }
     
-    private boolean shouldTryWikiLookup(String message) {
-        if (message == null || message.trim().length() < 3) return false;
-        
-        String lower = message.toLowerCase().trim();
+    // Canned answer for replies or wiki lookups dropped by the rate limiter, under its own key
+    // so it is not logged as an unknown question
+    private ResponseResult shedResult(ResponseCatalog catalog, String key) {
+        return new ResponseResult(key, defaultResult(catalog).template);
+    }
+    
+    private static ChatTemplates.Template pick(List<ChatTemplates.Template> options) {
+        return options.get(ThreadLocalRandom.current().nextInt(options.size()));
+    }
+    
+    private boolean shouldTryWikiLookup(TextAnalyzer.Analysis text) {
+        if (text.lower.trim().length() < 3) return false;
         
-        if (lower.matches("^[yn]$|^yes$|^no$|^ok$|^okay$|^k$|^thanks?$|^ty$|^bye$")) {
+        if (text.words.length == 1 && SMALL_TALK.contains(text.words[0])) {
             return false;
         }
         
-        return true;
+        return !text.terms().isEmpty();
     }
     
     boolean isOnCooldown(Player player) {
@@ -161,131 +218,140 @@ public final class FruitbotChat extends JavaPlugin {
             return false;
         }
         
-        if (!cooldowns.containsKey(player.getUniqueId())) {
+        PlayerSessions.PlayerSession session = sessions.peek(player.getUniqueId());
+        if (session == null || session.lastMessageAt == 0L) {
             return false;
         }
         
-        long secondsLeft = ((cooldowns.get(player.getUniqueId()) + (cooldownTime * 1000)) - System.currentTimeMillis()) / 1000;
+        long secondsLeft = ((session.lastMessageAt + (settings.cooldownSeconds * 1000)) - System.currentTimeMillis()) / 1000;
         return secondsLeft > 0;
     }
     
     void setCooldown(Player player) {
         if (!player.hasPermission("fruitbotchat.admin")) {
-            cooldowns.put(player.getUniqueId(), System.currentTimeMillis());
+            sessions.get(player.getUniqueId()).lastMessageAt = System.currentTimeMillis();
         }
     }
     
-    private void loadConfigValues() {
-        cooldownTime = getConfig().getLong("cooldown-seconds", 3);
-        cooldownMessage = color(getConfig().getString("messages.cooldown", "&cPlease wait before messaging FruitBot again!"));
-        noPermissionMessage = color(getConfig().getString("messages.no-permission", "&cYou don't have permission to use FruitBot!"));
-        playerOnlyMessage = color(getConfig().getString("messages.player-only", "&cOnly players can use this command!"));
-        noTargetMessage = color(getConfig().getString("messages.no-target", "&cNo target player found!"));
-        responseFormat = getConfig().getString("formats.response", "&a[FruitBot] &f%message%");
-        playerFormat = getConfig().getString("formats.player-message", "%player%: %message%");
-        responseDelayMs = getConfig().getLong("response-delay-ms", 1000L);
-        xrayTrackerEnabled = getConfig().getBoolean("xray-tracker-enabled", true);
-        spyEnabled = getConfig().getBoolean("spy-enabled", true);
-        fruitbotEnabled = getConfig().getBoolean("fruitbot-enabled", true);
-    }
-    
     private void loadResponses() {
         File responsesFile = new File(getDataFolder(), "responses.yml");
         if (!responsesFile.exists()) {
             saveResource("responses.yml", false);
         }
         
-        responses = YamlConfiguration.loadConfiguration(responsesFile);
+        responses = ResponseCatalog.compile(YamlConfiguration.loadConfiguration(responsesFile));
+        try {
+            responsesWatcher = new ResponsesWatcher(responsesFile, catalog -> responses = catalog, getLogger());
+        } catch (java.io.IOException e) {
+            getLogger().warning("Could not watch responses.yml for changes: " + e.getMessage());
+        }
     }
     
-    private void loadUnknownMessages() {
-        unknownMessagesFile = new File(getDataFolder(), "unknown_messages.yml");
-        if (!unknownMessagesFile.exists()) {
-            try {
-                unknownMessagesFile.createNewFile();
-            } catch (java.io.IOException e) {
-                getLogger().warning("Could not create unknown_messages.yml: " + e.getMessage());
-            }
-        }
-        unknownMessages = YamlConfiguration.loadConfiguration(unknownMessagesFile);
+    private void logUnknownMessage(Player player, TextAnalyzer.Analysis text) {
+        unknownMessages.append(player.getName(), player.getUniqueId(), text.raw);
+        unansweredTopics.record(text);
     }
     
-    private void logUnknownMessage(Player player, String message) {
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-        String key = "messages." + System.currentTimeMillis();
-        unknownMessages.set(key + ".player", player.getName());
-        unknownMessages.set(key + ".uuid", player.getUniqueId().toString());
-        unknownMessages.set(key + ".message", message);
-        unknownMessages.set(key + ".timestamp", timestamp);
-        try {
-            unknownMessages.save(unknownMessagesFile);
-        } catch (java.io.IOException e) {
-            getLogger().warning("Could not save unknown message: " + e.getMessage());
-        }
+    static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
     }
     
     public static FruitbotChat getInstance() {
         return instance;
     }
     
-    public FileConfiguration getResponses() {
-        return responses;
-    }
-
     public boolean wasLastTargetFruitbot(UUID playerId) {
-        return lastTargetWasFruitbot.contains(playerId);
+        PlayerSessions.PlayerSession session = sessions.peek(playerId);
+        return session != null && session.lastTargetFruitbot;
     }
 
     public void markFruitbotAsLastTarget(UUID playerId) {
-        lastTargetWasFruitbot.add(playerId);
+        sessions.get(playerId).lastTargetFruitbot = true;
     }
 
     public void clearLastTarget(UUID playerId) {
-        lastTargetWasFruitbot.remove(playerId);
+        PlayerSessions.PlayerSession session = sessions.peek(playerId);
+        if (session != null) session.lastTargetFruitbot = false;
+    }
+
+    public UnansweredTopics getUnansweredTopics() {
+        return unansweredTopics;
+    }
+
+    public ReplyLimiter getReplyLimiter() {
+        return replyLimiter;
+    }
+
+    public WikiService getWikiService() {
+        return wikiService;
+    }
+
+    public BotConfig settings() {
+        return settings;
     }
 
-    public String color(String s) {
-        return ChatColor.translateAlternateColorCodes('&', s == null ? "" : s);
+    public Component getCooldownMessage() {
+        return settings.cooldownMessage;
     }
 
     public boolean isXrayTrackerEnabled() {
-        return xrayTrackerEnabled;
+        return settings.xrayTrackerEnabled;
     }
 
     public void setXrayTrackerEnabled(boolean enabled) {
-        this.xrayTrackerEnabled = enabled;
-        getConfig().set("xray-tracker-enabled", enabled);
-        saveConfig();
+        updateSetting("xray-tracker-enabled", enabled);
     }
 
     public void setWelcomeEnabled(boolean enabled) {
-        getConfig().set("onboarding.welcome-enabled", enabled);
-        saveConfig();
-        if (onboardingListener != null) onboardingListener.loadConfig();
+        updateSetting("onboarding.welcome-enabled", enabled);
     }
 
     public void setWelcomeBackEnabled(boolean enabled) {
-        getConfig().set("onboarding.welcome-back-enabled", enabled);
-        saveConfig();
-        if (onboardingListener != null) onboardingListener.loadConfig();
+        updateSetting("onboarding.welcome-back-enabled", enabled);
     }
 
     public void setCheckupEnabled(boolean enabled) {
-        getConfig().set("onboarding.checkup-enabled", enabled);
-        saveConfig();
-        if (onboardingListener != null) onboardingListener.loadConfig();
+        updateSetting("onboarding.checkup-enabled", enabled);
     }
 
     public void setSpyEnabled(boolean enabled) {
-        this.spyEnabled = enabled;
-        getConfig().set("spy-enabled", enabled);
-        saveConfig();
+        updateSetting("spy-enabled", enabled);
     }
 
     public void setFruitbotEnabled(boolean enabled) {
-        this.fruitbotEnabled = enabled;
-        getConfig().set("fruitbot-enabled", enabled);
-        saveConfig();
+        updateSetting("fruitbot-enabled", enabled);
+    }
+
+    // Validates, applies to the live snapshot and persists in the background. Main thread only.
+    public void updateSetting(String path, Object value) {
+        Object validated = BotConfig.validate(path, value);
+        getConfig().set(path, validated);
+        settings = BotConfig.from(getConfig());
+        replyLimiter.configure(settings);
+        saveConfigAsync();
+    }
+
+    private void saveConfigAsync() {
+        String yaml = getConfig().saveToString();
+        Path target = new File(getDataFolder(), "config.yml").toPath();
+        configWriter.execute(() -> {
+            try {
+                Path temp = target.resolveSibling("config.yml.tmp");
+                Files.writeString(temp, yaml, StandardCharsets.UTF_8);
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                getLogger().warning("Could not save config.yml: " + e.getMessage());
+            }
+        });
     }
 
     public void markReviewNoticeActive() {
@@ -297,15 +363,17 @@ public final class FruitbotChat extends JavaPlugin {
     }
 
     public void addStaffPending(UUID id) {
-        staffPendingReview.add(id);
+        sessions.get(id).staffPendingReview = true;
     }
 
     public void removeStaffPending(UUID id) {
-        staffPendingReview.remove(id);
+        PlayerSessions.PlayerSession session = sessions.peek(id);
+        if (session != null) session.staffPendingReview = false;
     }
 
     public boolean isStaffPending(UUID id) {
-        return staffPendingReview.contains(id);
+        PlayerSessions.PlayerSession session = sessions.peek(id);
+        return session != null && session.staffPendingReview;
     }
 
     public void addOnlineStaffToPending() {
@@ -325,9 +393,10 @@ public final class FruitbotChat extends JavaPlugin {
     }
 
     public void markFruitbotAsLastSenderIfUnset(UUID playerId) {
-        if (!lastMessagedBy.containsKey(playerId)) {
-            lastMessagedBy.put(playerId, playerId);
-            lastTargetWasFruitbot.add(playerId);
+        PlayerSessions.PlayerSession session = sessions.get(playerId);
+        if (!session.fruitbotSender) {
+            session.fruitbotSender = true;
+            session.lastTargetFruitbot = true;
         }
     }
 
@@ -338,11 +407,13 @@ public final class FruitbotChat extends JavaPlugin {
     }
 
     public boolean isPendingMute(UUID id) {
-        return pendingMuteConfirm.contains(id);
+        PlayerSessions.PlayerSession session = sessions.peek(id);
+        return session != null && session.pendingMute;
     }
 
     public void clearPendingMute(UUID id) {
-        pendingMuteConfirm.remove(id);
+        PlayerSessions.PlayerSession session = sessions.peek(id);
+        if (session != null) session.pendingMute = false;
     }
 
     public boolean isPlayerMuted(UUID id) {
@@ -356,23 +427,22 @@ public final class FruitbotChat extends JavaPlugin {
 
     private static class ResponseResult {
         public final String key;
-        public final String text;
-        public ResponseResult(String key, String text) { this.key = key; this.text = text; }
+        public final ChatTemplates.Template template;
+        public ResponseResult(String key, ChatTemplates.Template template) { this.key = key; this.template = template; }
     }
 
-    public boolean handleAdminConfigMessage(Player player, String message) {
+    public boolean handleAdminConfigMessage(Player player, TextAnalyzer.Analysis text) {
         if (!player.hasPermission("fruitbotchat.admin")) return false;
-        String lower = message.toLowerCase(Locale.ROOT);
-        PendingConfigChange change = parseConfigIntent(lower);
+        PendingConfigChange change = parseConfigIntent(text);
         if (change == null) return false;
-        pendingConfig.put(player.getUniqueId(), change);
-        player.sendMessage(color("&6[&cFruitbot &6-> &cMe&6] &fWould you like to set " + change.path + " to " + String.valueOf(change.value) + "? Please confirm with Y/N"));
+        sessions.get(player.getUniqueId()).pendingConfig = change;
+        player.sendMessage(ChatTemplates.bot("Would you like to set " + change.path + " to " + String.valueOf(change.value) + "? Please confirm with Y/N"));
         return true;
     }
 
-    private PendingConfigChange parseConfigIntent(String msg) {
-        boolean enable = msg.contains("enable");
-        boolean disable = msg.contains("disable") || msg.contains("turn off");
+    private PendingConfigChange parseConfigIntent(TextAnalyzer.Analysis msg) {
+        boolean enable = msg.hasPhrase("enable");
+        boolean disable = msg.hasPhrase("disable") || msg.hasPhrase("turn off");
         Boolean boolVal = enable && !disable ? Boolean.TRUE : (disable && !enable ? Boolean.FALSE : null);
 
         if (containsAny(msg, "welcome back")) {
@@ -403,97 +473,63 @@ public final class FruitbotChat extends JavaPlugin {
         return null;
     }
 
-    private boolean containsAny(String msg, String... keys) {
-        for (String k : keys) if (msg.contains(k)) return true;
+    private boolean containsAny(TextAnalyzer.Analysis msg, String... keys) {
+        for (String k : keys) if (msg.hasPhrase(k)) return true;
         return false;
     }
 
-    private Long extractSeconds(String msg) {
+    private Long extractSeconds(TextAnalyzer.Analysis msg) {
         Long n = extractNumber(msg);
         if (n == null) return null;
-        if (msg.contains("ms")) return Math.max(0L, n / 1000L);
+        if (hasUnit(msg, "ms", "millisecond")) return Math.max(0L, n / 1000L);
         return n;
     }
 
-    private Long extractMs(String msg) {
+    private Long extractMs(TextAnalyzer.Analysis msg) {
         Long n = extractNumber(msg);
         if (n == null) return null;
-        if (msg.contains("second")) return n * 1000L;
+        if (hasUnit(msg, "s", "sec", "second")) return n * 1000L;
         return n;
     }
 
-    private Long extractNumber(String msg) {
-        try {
-            java.util.regex.Matcher m = java.util.regex.Pattern.compile("(\\d+)").matcher(msg);
-            if (m.find()) return Long.parseLong(m.group(1));
-        } catch (Exception ignored) {}
+    // First run of digits in the message, e.g. 5 in "welcome delay 5s"
+    private Long extractNumber(TextAnalyzer.Analysis msg) {
+        for (String word : msg.words) {
+            int digits = 0;
+            while (digits < word.length() && Character.isDigit(word.charAt(digits))) digits++;
+            if (digits > 0 && digits <= 18) return Long.parseLong(word.substring(0, digits));
+        }
         return null;
     }
 
-    public boolean confirmPendingConfig(Player player, String input) {
-        PendingConfigChange change = pendingConfig.get(player.getUniqueId());
-        if (change == null) return false;
-        String s = input.trim().toLowerCase(Locale.ROOT);
-        if (s.equals("y") || s.equals("yes")) {
-            applyConfigChange(change);
-            pendingConfig.remove(player.getUniqueId());
-            player.sendMessage(color("&6[&cFruitbot &6-> &cMe&6] &fSetting applied: " + change.path + " = " + String.valueOf(change.value)));
-            player.sendMessage(color("&6[&cFruitbot &6-> &cMe&6] &fReload now? Please confirm with Y/N"));
-            pendingReload.add(player.getUniqueId());
-        } else {
-            pendingConfig.remove(player.getUniqueId());
-            player.sendMessage(color("&6[&cFruitbot &6-> &cMe&6] &fCancelled."));
+    // True when a word is one of the units, alone or right after a number ("500ms", "5 seconds")
+    private boolean hasUnit(TextAnalyzer.Analysis msg, String... units) {
+        for (int i = 0; i < msg.words.length; i++) {
+            String word = msg.words[i];
+            int digits = 0;
+            while (digits < word.length() && Character.isDigit(word.charAt(digits))) digits++;
+            String unit = TextAnalyzer.stem(word.substring(digits));
+            for (String u : units) if (unit.equals(u) && (digits > 0 || u.length() > 1)) return true;
         }
-        return true;
+        return false;
     }
 
-    public boolean confirmPendingReload(Player player, String input) {
-        if (!pendingReload.contains(player.getUniqueId())) return false;
+    public boolean confirmPendingConfig(Player player, String input) {
+        PlayerSessions.PlayerSession session = sessions.peek(player.getUniqueId());
+        PendingConfigChange change = session == null ? null : session.pendingConfig;
+        if (change == null) return false;
         String s = input.trim().toLowerCase(Locale.ROOT);
+        session.pendingConfig = null;
         if (s.equals("y") || s.equals("yes")) {
-            pendingReload.remove(player.getUniqueId());
-            startReloadCountdown(player);
+            try {
+                updateSetting(change.path, change.value);
+                player.sendMessage(ChatTemplates.bot("Setting applied: " + change.path + " = " + String.valueOf(change.value)));
+            } catch (IllegalArgumentException e) {
+                player.sendMessage(ChatTemplates.bot("Setting not applied: " + e.getMessage()));
+            }
         } else {
-            pendingReload.remove(player.getUniqueId());
-            player.sendMessage(color("&6[&cFruitbot &6-> &cMe&6] &fReload cancelled."));
+            player.sendMessage(CANCELLED_MESSAGE);
         }
         return true;
     }
-
-    private void applyConfigChange(PendingConfigChange change) {
-        getConfig().set(change.path, change.value);
-        saveConfig();
-        if ("onboarding.welcome-enabled".equals(change.path)
-            || "onboarding.welcome-back-enabled".equals(change.path)
-            || "onboarding.checkup-enabled".equals(change.path)
-            || "onboarding.welcome-delay-seconds".equals(change.path)
-            || "onboarding.welcome-back-delay-seconds".equals(change.path)
-            || "onboarding.checkup-delay-seconds".equals(change.path)) {
-            if (onboardingListener != null) onboardingListener.loadConfig();
-        }
-        if ("response-delay-ms".equals(change.path)) {
-            this.responseDelayMs = getConfig().getLong("response-delay-ms", 1000L);
-        }
-        if ("xray-tracker-enabled".equals(change.path)) {
-            this.xrayTrackerEnabled = getConfig().getBoolean("xray-tracker-enabled", true);
-        }
-        if ("spy-enabled".equals(change.path)) {
-            this.spyEnabled = getConfig().getBoolean("spy-enabled", true);
-        }
-    }
-
-    private void startReloadCountdown(Player player) {
-        final int[] count = {3};
-        Bukkit.getScheduler().runTaskTimer(this, task -> {
-            if (count[0] > 0) {
-                player.sendMessage(color("&6[&cFruitbot &6-> &cMe&6] &f" + count[0]));
-                count[0]--;
-            } else {
-                player.sendMessage(color("&6[&cFruitbot &6-> &cMe&6] &fPlugin reloaded!"));
-                task.cancel();
-                Bukkit.getPluginManager().disablePlugin(this);
-                Bukkit.getPluginManager().enablePlugin(this);
-            }
-        }, 0L, 20L);
-    }
 }
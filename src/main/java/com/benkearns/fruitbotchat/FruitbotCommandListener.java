@@ -1,5 +1,7 @@
 package com.benkearns.fruitbotchat;
 
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -7,7 +9,9 @@ import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 public class FruitbotCommandListener implements Listener {
@@ -17,6 +21,17 @@ public class FruitbotCommandListener implements Listener {
     private static final Set<String> REPLY_ALIASES = new HashSet<>(Arrays.asList(
             "r", "reply"
     ));
+    private static final Component ENABLED_MESSAGE = ChatTemplates.bot("Fruitbot enabled");
+    private static final Component DISABLED_MESSAGE = ChatTemplates.bot("Fruitbot disabled");
+    private static final Component USAGE_MESSAGE = ChatTemplates.bot("Usage: /fruitbotchat <enable|disable|stats|refresh|topics [count]>");
+    private static final Component NO_PERMISSION_MESSAGE = ChatTemplates.parse("&cYou don't have permission to message FruitBot.");
+    private static final Component UNMUTED_MESSAGE = ChatTemplates.bot("Unmuted. You will receive Fruitbot onboarding messages again.");
+    private static final Component MUTED_MESSAGE = ChatTemplates.bot("Muted. You will no longer receive Fruitbot onboarding messages.");
+    private static final Component NO_TOPICS_MESSAGE = ChatTemplates.bot("No unanswered questions recorded yet.");
+    private static final Component WIKI_REFRESH_STARTED_MESSAGE = ChatTemplates.bot("Refreshing the wiki index...");
+    private static final Component WIKI_REFRESHED_MESSAGE = ChatTemplates.bot("Wiki index refreshed.");
+    private static final Component WIKI_REFRESH_FAILED_MESSAGE = ChatTemplates.bot("Wiki refresh found no pages; keeping the current index.");
+    private static final Component REVIEW_CONFIRMED_MESSAGE = ChatTemplates.bot("You have confirmed your review of this path.");
 
     private final FruitbotChat plugin;
 
@@ -42,12 +57,31 @@ public class FruitbotCommandListener implements Listener {
                 if (action.equals("enable") || action.equals("disable")) {
                     boolean enable = action.equals("enable");
                     plugin.setFruitbotEnabled(enable);
-                    player.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fFruitbot " + (enable ? "enabled" : "disabled")));
+                    player.sendMessage(enable ? ENABLED_MESSAGE : DISABLED_MESSAGE);
+                    event.setCancelled(true);
+                    return;
+                }
+                if (action.equals("stats")) {
+                    player.sendMessage(ChatTemplates.bot("Rate limiter: " + plugin.getReplyLimiter().describe()));
+                    player.sendMessage(ChatTemplates.bot("Wiki: " + plugin.getWikiService().describe()));
+                    event.setCancelled(true);
+                    return;
+                }
+                if (action.equals("refresh")) {
+                    player.sendMessage(WIKI_REFRESH_STARTED_MESSAGE);
+                    plugin.getWikiService().refreshAsync().thenAccept(published ->
+                        Bukkit.getScheduler().runTask(plugin, () ->
+                            player.sendMessage(published ? WIKI_REFRESHED_MESSAGE : WIKI_REFRESH_FAILED_MESSAGE)));
+                    event.setCancelled(true);
+                    return;
+                }
+                if (action.equals("topics")) {
+                    sendTopics(player, parts.length >= 3 ? parts[2] : "");
                     event.setCancelled(true);
                     return;
                 }
             }
-            player.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fUsage: /fruitbotchat <enable|disable>"));
+            player.sendMessage(USAGE_MESSAGE);
             event.setCancelled(true);
             return;
         }
@@ -57,7 +91,7 @@ public class FruitbotCommandListener implements Listener {
             String target = parts[1].toLowerCase(Locale.ROOT);
             if (target.equals("fruitbot") || target.equals("fruitbotchat")) {
                 if (!player.hasPermission("fruitbotchat.use")) {
-                    player.sendMessage(plugin.color("&cYou don't have permission to message FruitBot."));
+                    player.sendMessage(NO_PERMISSION_MESSAGE);
                     event.setCancelled(true);
                     return;
                 }
@@ -67,23 +101,24 @@ public class FruitbotCommandListener implements Listener {
                     event.setCancelled(true);
                     plugin.setPlayerMuted(player.getUniqueId(), false);
                     plugin.clearPendingMute(player.getUniqueId());
-                    player.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fUnmuted. You will receive Fruitbot onboarding messages again."));
+                    player.sendMessage(UNMUTED_MESSAGE);
                     return;
                 }
                 // Allow admin configuration messages to bypass cooldown
                 if (!player.hasPermission("fruitbotchat.admin") && plugin.isOnCooldown(player)) {
-                    player.sendMessage(plugin.color(plugin.getConfig().getString("messages.cooldown", "&cPlease wait before messaging FruitBot again!")));
+                    player.sendMessage(plugin.getCooldownMessage());
                     event.setCancelled(true);
                     return;
                 }
                 if (message.isEmpty()) return;
                 event.setCancelled(true);
+                TextAnalyzer.Analysis text = TextAnalyzer.analyze(message);
                 if (player.hasPermission("fruitbotchat.admin")) {
-                    if (plugin.handleAdminConfigMessage(player, message)) {
+                    if (plugin.handleAdminConfigMessage(player, text)) {
                         return;
                     }
                 }
-                plugin.processMessage(player, message);
+                plugin.processMessage(player, text);
                 plugin.setCooldown(player);
                 plugin.markFruitbotAsLastTarget(player.getUniqueId());
             }
@@ -94,7 +129,7 @@ public class FruitbotCommandListener implements Listener {
             if (!plugin.wasLastTargetFruitbot(player.getUniqueId())) return;
             if (parts.length < 2) return;
             if (!player.hasPermission("fruitbotchat.use")) {
-                player.sendMessage(plugin.color("&cYou don't have permission to message FruitBot."));
+                player.sendMessage(NO_PERMISSION_MESSAGE);
                 event.setCancelled(true);
                 return;
             }
@@ -104,30 +139,45 @@ public class FruitbotCommandListener implements Listener {
                 event.setCancelled(true);
                 plugin.setPlayerMuted(player.getUniqueId(), true);
                 plugin.clearPendingMute(player.getUniqueId());
-                player.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fMuted. You will no longer receive Fruitbot onboarding messages."));
+                player.sendMessage(MUTED_MESSAGE);
                 return;
             }
             if (!player.hasPermission("fruitbotchat.admin") && plugin.isOnCooldown(player)) {
-                player.sendMessage(plugin.color(plugin.getConfig().getString("messages.cooldown", "&cPlease wait before messaging FruitBot again!")));
+                player.sendMessage(plugin.getCooldownMessage());
                 event.setCancelled(true);
                 return;
             }
             if (message.isEmpty()) return;
             event.setCancelled(true);
-            if (plugin.confirmPendingReload(player, message)) {
-                return;
-            }
             if (plugin.confirmPendingConfig(player, message)) {
                 return;
             }
             if (plugin.isStaffPending(player.getUniqueId())) {
                 plugin.removeStaffPending(player.getUniqueId());
-                player.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fYou have confirmed your review of this path."));
+                player.sendMessage(REVIEW_CONFIRMED_MESSAGE);
                 return;
             }
-            plugin.processMessage(player, message);
+            plugin.processMessage(player, TextAnalyzer.analyze(message));
             plugin.setCooldown(player);
             plugin.markFruitbotAsLastTarget(player.getUniqueId());
         }
     }
+
+    private void sendTopics(Player player, String countArg) {
+        int count = 10;
+        try {
+            if (!countArg.isBlank()) count = Math.max(1, Math.min(50, Integer.parseInt(countArg.trim())));
+        } catch (NumberFormatException ignored) {}
+        UnansweredTopics topics = plugin.getUnansweredTopics();
+        List<Map.Entry<String, Integer>> top = topics.top(count);
+        if (top.isEmpty()) {
+            player.sendMessage(NO_TOPICS_MESSAGE);
+            return;
+        }
+        player.sendMessage(ChatTemplates.bot("Top unanswered topics (" + topics.getMessages() + " questions since start):"));
+        int rank = 1;
+        for (Map.Entry<String, Integer> entry : top) {
+            player.sendMessage(ChatTemplates.bot(rank++ + ". " + entry.getKey() + " ~" + entry.getValue()));
+        }
+    }
 }
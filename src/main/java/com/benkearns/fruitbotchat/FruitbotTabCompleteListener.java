@@ -31,10 +31,10 @@ public class FruitbotTabCompleteListener implements Listener {
             }
         }
 
-        if ("fruitbot".equals(label)) {
+        if ("fruitbot".equals(label) || "fruitbotchat".equals(label)) {
             if (parts.length == 2) {
                 String partial = parts[1].toLowerCase(Locale.ROOT);
-                for (String opt : Arrays.asList("enable", "disable")) {
+                for (String opt : Arrays.asList("enable", "disable", "stats", "refresh", "topics")) {
                     if (opt.startsWith(partial) && !event.getCompletions().contains(opt)) {
                         event.getCompletions().add(opt);
                     }
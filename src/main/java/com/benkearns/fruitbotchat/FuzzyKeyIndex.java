@@ -0,0 +1,139 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// SymSpell-style deletion dictionary over the single-word response keys so that typos like
+// "discrod" or "protecton" still resolve. Only consulted after the exact matcher found nothing,
+// and only for words that are not real words themselves: stop words, the vocabulary of the
+// answers, the never-correct list in responses.yml and anything the caller knows (the wiki's
+// terms) are left alone, so "poison" never becomes "prison".
+final class FuzzyKeyIndex {
+    private static final int MAX_DISTANCE = 2;
+    private static final int MIN_KEY_LENGTH = 3;
+
+    private final Map<String, int[]> deletes;
+    private final String[] keys;
+    private final Set<String> knownWords;
+
+    private FuzzyKeyIndex(Map<String, int[]> deletes, String[] keys, Set<String> knownWords) {
+        this.deletes = deletes;
+        this.keys = keys;
+        this.knownWords = knownWords;
+    }
+
+    static FuzzyKeyIndex build(List<String> keys, Set<String> knownWords) {
+        Map<String, int[]> deletes = new HashMap<>();
+        String[] lowered = new String[keys.size()];
+        for (int id = 0; id < keys.size(); id++) {
+            String key = keys.get(id).toLowerCase(Locale.ROOT);
+            lowered[id] = key;
+            if (key.length() < MIN_KEY_LENGTH || !isSingleWord(key)) continue;
+            Set<String> variants = new HashSet<>();
+            collectDeletes(key, MAX_DISTANCE, variants);
+            variants.add(key);
+            for (String variant : variants) {
+                int[] ids = deletes.get(variant);
+                if (ids == null) {
+                    deletes.put(variant, new int[]{id});
+                } else {
+                    int[] grown = Arrays.copyOf(ids, ids.length + 1);
+                    grown[ids.length] = id;
+                    deletes.put(variant, grown);
+                }
+            }
+        }
+        return new FuzzyKeyIndex(deletes, lowered, Set.copyOf(knownWords));
+    }
+
+    // Closest key for an analyzed message as {keyId, distance, wordStart, wordEnd}, or null
+    int[] bestMatch(TextAnalyzer.Analysis text, Predicate<String> alsoKnown) {
+        int[] best = null;
+        for (int w = 0; w < text.words.length; w++) {
+            int[] hit = lookup(text.words[w]);
+            if (hit != null && alsoKnown.test(text.words[w])) continue;
+            if (hit != null && (best == null || hit[1] < best[1] || (hit[1] == best[1] && hit[0] < best[0]))) {
+                best = new int[]{hit[0], hit[1], text.starts[w], text.ends[w]};
+            }
+        }
+        return best;
+    }
+
+    int[] lookup(String token) {
+        int allowed = allowedDistance(token.length());
+        if (allowed == 0 || TextAnalyzer.STOP_WORDS.contains(token) || knownWords.contains(token)) return null;
+        Set<String> variants = new HashSet<>();
+        collectDeletes(token, allowed, variants);
+        variants.add(token);
+        int bestId = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (String variant : variants) {
+            int[] ids = deletes.get(variant);
+            if (ids == null) continue;
+            for (int id : ids) {
+                int distance = distance(token, keys[id], allowed);
+                if (distance > allowed) continue;
+                if (distance < bestDistance || (distance == bestDistance && id < bestId)) {
+                    bestDistance = distance;
+                    bestId = id;
+                }
+            }
+        }
+        return bestId < 0 || bestDistance == 0 ? null : new int[]{bestId, bestDistance};
+    }
+
+    private static int allowedDistance(int length) {
+        if (length < 4) return 0;
+        if (length < 8) return 1;
+        return MAX_DISTANCE;
+    }
+
+    private static boolean isSingleWord(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isLetterOrDigit(key.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static void collectDeletes(String word, int depth, Set<String> out) {
+        if (depth == 0 || word.length() <= 1) return;
+        for (int i = 0; i < word.length(); i++) {
+            String shorter = word.substring(0, i) + word.substring(i + 1);
+            if (out.add(shorter)) collectDeletes(shorter, depth - 1, out);
+        }
+    }
+
+    // Optimal string alignment distance (Levenshtein plus adjacent transpositions), capped at max + 1
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] prevPrev = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    v = Math.min(v, prevPrev[j - 2] + 1);
+                }
+                cur[j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = prevPrev;
+            prevPrev = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+}
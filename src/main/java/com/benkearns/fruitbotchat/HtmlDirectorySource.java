@@ -0,0 +1,142 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Pages from a directory of saved wiki HTML (e.g. an httrack or wget mirror) in the plugin
+// folder. Each file maps to baseUrl + its relative path without the extension, index.html at the
+// top being the wiki root. Files are streamed through HtmlTextExtractor on a worker pool; a file
+// whose modification time is unchanged is not read again, and one whose bytes hash the same
+// keeps its indexed version.
+final class HtmlDirectorySource implements CorpusSource {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final File dir;
+    private final String baseUrl;
+    private final int maxPageBytes;
+    private final int threads;
+    private final Logger logger;
+    private volatile String lastLoad = "none";
+
+    HtmlDirectorySource(File dir, String baseUrl, int maxPageBytes, int threads, Logger logger) {
+        this.dir = dir;
+        this.baseUrl = baseUrl;
+        this.maxPageBytes = maxPageBytes;
+        this.threads = threads;
+        this.logger = logger;
+    }
+
+    @Override
+    public Map<String, WikiPage> load(Map<String, WikiPage> previous) throws InterruptedException {
+        if (!dir.isDirectory()) {
+            logger.warning("[Wiki] HTML directory not found: " + dir.getPath());
+            lastLoad = "directory missing";
+            return new LinkedHashMap<>();
+        }
+        long start = System.currentTimeMillis();
+        Path root = dir.toPath();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).filter(HtmlDirectorySource::isHtml).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "[Wiki] Could not list " + dir.getPath(), e);
+            lastLoad = "failed: " + e.getMessage();
+            return new LinkedHashMap<>();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads, FruitbotChat.namedThreadFactory("Fruitbot-Wiki-Ingest"));
+        try {
+            List<Future<WikiPage>> tasks = new ArrayList<>(files.size());
+            for (Path file : files) tasks.add(pool.submit(() -> read(file, pagePath(root, file), previous)));
+            Map<String, WikiPage> pages = CorpusSource.collect(tasks, logger);
+            long reused = pages.values().stream().filter(p -> p == previous.get(p.url)).count();
+            lastLoad = pages.size() + " of " + files.size() + " files (" + reused + " unchanged) in "
+                + (System.currentTimeMillis() - start) + "ms";
+            logger.info("[Wiki] HTML directory loaded: " + lastLoad);
+            return pages;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "last directory load: " + lastLoad;
+    }
+
+    private static boolean isHtml(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".html") || name.endsWith(".htm");
+    }
+
+    // Path of the page below the wiki root with '/' separators and no extension, "" for the root
+    private static String pagePath(Path root, Path file) {
+        String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+        relative = relative.substring(0, relative.lastIndexOf('.'));
+        if (relative.equalsIgnoreCase("index")) return "";
+        if (relative.toLowerCase(Locale.ROOT).endsWith("/index")) relative = relative.substring(0, relative.length() - 6);
+        return relative.replace(' ', '_');
+    }
+
+    // Each segment is percent-encoded, so names with '%', '[', '|' or non-ASCII letters still make a valid URI
+    private String urlFor(String pagePath) {
+        if (pagePath.isEmpty()) return baseUrl;
+        StringBuilder url = new StringBuilder(baseUrl);
+        for (String segment : pagePath.split("/")) {
+            url.append('/');
+            for (byte b : segment.getBytes(StandardCharsets.UTF_8)) {
+                char c = (char) (b & 0xFF);
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "-._~!$&'()*+,;=:@".indexOf(c) >= 0) {
+                    url.append(c);
+                } else {
+                    url.append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                }
+            }
+        }
+        return url.toString();
+    }
+
+    private static String nameFor(String pagePath) {
+        return pagePath.isEmpty() ? "Home" : pagePath.substring(pagePath.lastIndexOf('/') + 1).replace('_', ' ');
+    }
+
+    private WikiPage read(Path file, String pagePath, Map<String, WikiPage> previous) throws IOException {
+        String url = urlFor(pagePath);
+        WikiPage known = previous.get(url);
+        String stamp = Long.toString(Files.getLastModifiedTime(file).toMillis());
+        if (known != null && stamp.equals(known.lastModified)) return known;
+        if (Files.size(file) > maxPageBytes) {
+            logger.fine("[Wiki] Skipping oversized page " + file);
+            return null;
+        }
+        CappedStream in;
+        HtmlTextExtractor.Result extracted;
+        try (InputStream raw = Files.newInputStream(file)) {
+            in = new CappedStream(raw, maxPageBytes);
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            extracted = HtmlTextExtractor.extract(reader, url);
+        }
+        if (in.exceeded || extracted.text.isEmpty()) return null;
+        if (known != null && known.contentHash == in.hash) return known.revalidated(null, stamp);
+        int version = known == null ? 1 : known.version + 1;
+        return new WikiPage(url, nameFor(pagePath), extracted.text.getBytes(StandardCharsets.UTF_8), null, stamp,
+            List.of(), in.hash, version);
+    }
+}
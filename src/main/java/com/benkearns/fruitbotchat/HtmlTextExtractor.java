@@ -0,0 +1,377 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Single-pass HTML to text for wiki pages. The body is read through a small buffer instead of
+// being parsed into a DOM: script/style/nav/header/footer and navbox, infobox and edit-link
+// subtrees are skipped as they stream past, p, li and h1-h6 each become one block (text inside a
+// nested block belongs to the inner block only), and headings are written as "#" lines by level
+// so the indexer sees the page's real heading hierarchy. Links come from every <a href>,
+// skipped navigation included, since that is how the crawl finds pages.
+final class HtmlTextExtractor {
+    private static final Set<String> SKIP_TAGS = Set.of("script", "style", "nav", "header", "footer");
+    private static final Set<String> SKIP_CLASSES = Set.of("navbox", "infobox", "mw-editsection");
+    private static final Set<String> CONTENT_CLASSES = Set.of("mw-parser-output", "content");
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "textarea", "title");
+    private static final Set<String> VOID_TAGS = Set.of("area", "base", "br", "col", "embed", "hr", "img", "input",
+        "link", "meta", "param", "source", "track", "wbr");
+    private static final Set<String> INLINE_TAGS = Set.of("a", "abbr", "b", "big", "code", "em", "font", "i", "kbd",
+        "mark", "s", "small", "span", "strong", "sub", "sup", "tt", "u");
+    private static final Set<String> CLOSES_PARAGRAPH = Set.of("p", "li", "h1", "h2", "h3", "h4", "h5", "h6", "div",
+        "ul", "ol", "table", "pre", "blockquote", "dl");
+    private static final Map<String, String> ENTITIES = Map.ofEntries(
+        Map.entry("amp", "&"), Map.entry("lt", "<"), Map.entry("gt", ">"), Map.entry("quot", "\""),
+        Map.entry("apos", "'"), Map.entry("nbsp", "\u00A0"), Map.entry("ndash", "\u2013"), Map.entry("mdash", "\u2014"),
+        Map.entry("hellip", "\u2026"), Map.entry("lsquo", "\u2018"), Map.entry("rsquo", "\u2019"),
+        Map.entry("ldquo", "\u201C"), Map.entry("rdquo", "\u201D"), Map.entry("copy", "\u00A9"));
+    private static final int MIN_BLOCK_TEXT = 10;
+
+    private final Reader in;
+    private final URI base;
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int limit;
+
+    private final List<Element> open = new ArrayList<>();
+    private int skipping;
+    private int contentDepth;
+    private final StringBuilder text = new StringBuilder();
+    private boolean pendingSpace;
+
+    private final StringBuilder contentOut = new StringBuilder();
+    private final StringBuilder bodyOut = new StringBuilder();
+    private final List<String> links = new ArrayList<>();
+
+    private HtmlTextExtractor(Reader in, String url) {
+        this.in = in;
+        this.base = URI.create(url);
+    }
+
+    // Text of the content container (.mw-parser-output, .content, #content or main) when the page
+    // has one, otherwise of the whole page
+    static Result extract(Reader in, String url) throws IOException {
+        HtmlTextExtractor extractor = new HtmlTextExtractor(in, url);
+        extractor.run();
+        String out = (extractor.contentOut.length() > 0 ? extractor.contentOut : extractor.bodyOut).toString();
+        return new Result(out, extractor.links);
+    }
+
+    private void run() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                markup();
+            } else if (c == '&') {
+                appendText(entity());
+            } else {
+                appendChar((char) c);
+            }
+        }
+        while (!open.isEmpty()) pop();
+    }
+
+    private void markup() throws IOException {
+        int c = peek();
+        if (c == '!') {
+            read();
+            if (peek() == '-') {
+                read();
+                if (peek() == '-') {
+                    read();
+                    skipPast("-->");
+                    return;
+                }
+            }
+            skipPast(">");
+        } else if (c == '?') {
+            skipPast(">");
+        } else if (c == '/') {
+            read();
+            String name = tagName();
+            skipPast(">");
+            if (!name.isEmpty()) close(name);
+        } else if (Character.isLetter(c)) {
+            String name = tagName();
+            Map<String, String> attributes = new HashMap<>();
+            boolean selfClosing = attributes(attributes);
+            openTag(name, attributes, selfClosing);
+        } else {
+            appendChar('<');
+        }
+    }
+
+    private void openTag(String name, Map<String, String> attributes, boolean selfClosing) throws IOException {
+        if (name.equals("a")) {
+            String href = attributes.get("href");
+            if (href != null) addLink(href);
+        }
+        if (!INLINE_TAGS.contains(name)) pendingSpace = text.length() > 0;
+        if (VOID_TAGS.contains(name) || selfClosing) return;
+
+        if (CLOSES_PARAGRAPH.contains(name)) closeOpen("p", Set.of());
+        if (name.equals("li")) closeOpen("li", Set.of("ul", "ol"));
+
+        Element element = new Element(name);
+        String classes = attributes.getOrDefault("class", "");
+        element.skip = SKIP_TAGS.contains(name) || hasClass(classes, SKIP_CLASSES);
+        element.content = name.equals("main") || "content".equals(attributes.get("id")) || hasClass(classes, CONTENT_CLASSES);
+        element.heading = name.length() == 2 && name.charAt(0) == 'h' && name.charAt(1) >= '1' && name.charAt(1) <= '6'
+            ? name.charAt(1) - '0' : 0;
+        element.block = element.heading > 0 || name.equals("p") || name.equals("li");
+        if (element.block) flush();
+        push(element);
+
+        if (RAW_TEXT_TAGS.contains(name)) {
+            skipPast("</" + name);
+            skipPast(">");
+            pop();
+        }
+    }
+
+    // Closes the nearest open element with this name, unless one of the stop tags is nearer
+    private void closeOpen(String name, Set<String> stops) {
+        for (int i = open.size() - 1; i >= 0; i--) {
+            String openName = open.get(i).name;
+            if (stops.contains(openName)) return;
+            if (openName.equals(name)) {
+                while (open.size() > i) pop();
+                return;
+            }
+        }
+    }
+
+    private void close(String name) {
+        closeOpen(name, Set.of());
+        if (!INLINE_TAGS.contains(name)) pendingSpace = text.length() > 0;
+    }
+
+    private void push(Element element) {
+        open.add(element);
+        if (element.skip) skipping++;
+        if (element.content) contentDepth++;
+    }
+
+    private void pop() {
+        Element element = open.remove(open.size() - 1);
+        if (element.block) flush(element);
+        if (element.skip) skipping--;
+        if (element.content) contentDepth--;
+    }
+
+    // Emits the text gathered so far for the innermost open block, before a nested one starts
+    private void flush() {
+        for (int i = open.size() - 1; i >= 0; i--) {
+            if (open.get(i).block) {
+                flush(open.get(i));
+                return;
+            }
+        }
+        text.setLength(0);
+        pendingSpace = false;
+    }
+
+    private void flush(Element block) {
+        String line = text.toString().trim();
+        text.setLength(0);
+        pendingSpace = false;
+        if (skipping > 0) return;
+        if (block.heading > 0) {
+            if (line.isEmpty()) return;
+            line = "#".repeat(block.heading) + " " + line;
+        } else {
+            while (line.startsWith("#")) line = line.substring(1).trim();
+            if (line.length() <= MIN_BLOCK_TEXT || line.startsWith("Edit") || line.startsWith("From ")) return;
+        }
+        if (contentDepth > 0) contentOut.append(line).append('\n');
+        bodyOut.append(line).append('\n');
+    }
+
+    private void appendChar(char c) {
+        if (skipping > 0) return;
+        if (Character.isWhitespace(c) || c == '\u00A0') {
+            pendingSpace = text.length() > 0;
+            return;
+        }
+        if (pendingSpace) text.append(' ');
+        pendingSpace = false;
+        text.append(c);
+    }
+
+    private void appendText(String s) {
+        for (int i = 0; i < s.length(); i++) appendChar(s.charAt(i));
+    }
+
+    private void addLink(String href) {
+        try {
+            URI resolved = base.resolve(decodeEntities(href.trim()).replace(" ", "%20"));
+            links.add(resolved.toString());
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    private static boolean hasClass(String classes, Set<String> wanted) {
+        if (classes.isEmpty()) return false;
+        for (String c : classes.split("\\s+")) {
+            if (wanted.contains(c)) return true;
+        }
+        return false;
+    }
+
+    private String tagName() throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while ((c = peek()) != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == ':')) {
+            name.append(Character.toLowerCase((char) read()));
+        }
+        return name.toString();
+    }
+
+    // Reads attributes up to and including '>'; true for a self-closing tag
+    private boolean attributes(Map<String, String> out) throws IOException {
+        boolean selfClosing = false;
+        while (true) {
+            int c = read();
+            if (c == -1 || c == '>') return selfClosing;
+            if (Character.isWhitespace(c)) continue;
+            if (c == '/') {
+                selfClosing = true;
+                continue;
+            }
+            selfClosing = false;
+            StringBuilder name = new StringBuilder().append(Character.toLowerCase((char) c));
+            while ((c = peek()) != -1 && c != '=' && c != '>' && c != '/' && !Character.isWhitespace(c)) {
+                name.append(Character.toLowerCase((char) read()));
+            }
+            while ((c = peek()) != -1 && Character.isWhitespace(c)) read();
+            if (peek() != '=') {
+                out.putIfAbsent(name.toString(), "");
+                continue;
+            }
+            read();
+            while ((c = peek()) != -1 && Character.isWhitespace(c)) read();
+            StringBuilder value = new StringBuilder();
+            int quote = peek();
+            if (quote == '"' || quote == '\'') {
+                read();
+                while ((c = read()) != -1 && c != quote) value.append((char) c);
+            } else {
+                while ((c = peek()) != -1 && c != '>' && !Character.isWhitespace(c)) value.append((char) read());
+            }
+            out.putIfAbsent(name.toString(), value.toString());
+        }
+    }
+
+    // Decoded character reference after '&', or the literal text when it is not one
+    private String entity() throws IOException {
+        StringBuilder ref = new StringBuilder();
+        int c;
+        while (ref.length() < 10 && (c = peek()) != -1 && (Character.isLetterOrDigit(c) || c == '#')) {
+            ref.append((char) read());
+        }
+        if (peek() == ';') {
+            read();
+            String decoded = decodeReference(ref.toString());
+            if (decoded != null) return decoded;
+            return "&" + ref + ";";
+        }
+        String decoded = decodeReference(ref.toString());
+        return decoded != null ? decoded : "&" + ref;
+    }
+
+    private static String decodeReference(String ref) {
+        if (ref.startsWith("#") && ref.length() > 1) {
+            try {
+                int code = ref.charAt(1) == 'x' || ref.charAt(1) == 'X'
+                    ? Integer.parseInt(ref.substring(2), 16) : Integer.parseInt(ref.substring(1));
+                return Character.isValidCodePoint(code) ? new String(Character.toChars(code)) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ENTITIES.get(ref.toLowerCase(Locale.ROOT));
+    }
+
+    // Character references in attribute values and other markup text, e.g. "&amp;" to "&"
+    static String decodeEntities(String s) {
+        if (s.indexOf('&') < 0) return s;
+        StringBuilder out = new StringBuilder(s.length());
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            int semi = c == '&' ? s.indexOf(';', i) : -1;
+            String decoded = semi > i && semi - i <= 11 ? decodeReference(s.substring(i + 1, semi)) : null;
+            if (decoded != null) {
+                out.append(decoded);
+                i = semi + 1;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    // Consumes input up to and including the (case-insensitive) marker
+    private void skipPast(String marker) throws IOException {
+        int matched = 0;
+        int c;
+        while ((c = read()) != -1) {
+            char lower = Character.toLowerCase((char) c);
+            // On a mismatch fall back to the longest marker prefix that still ends here ("--->")
+            while (matched > 0 && marker.charAt(matched) != lower) {
+                int shorter = matched - 1;
+                while (shorter > 0 && !marker.startsWith(marker.substring(matched - shorter, matched))) shorter--;
+                matched = shorter;
+            }
+            if (marker.charAt(matched) == lower && ++matched == marker.length()) return;
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private static final class Element {
+        final String name;
+        boolean skip;
+        boolean content;
+        boolean block;
+        int heading;
+
+        Element(String name) {
+            this.name = name;
+        }
+    }
+
+    static final class Result {
+        final String text;
+        final List<String> links;
+
+        Result(String text, List<String> links) {
+            this.text = text;
+            this.links = links;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Ranks response keys against a message instead of taking the first key in file order.
+// A key is a candidate when its name or one of its synonyms appears in the message (found by
+// one Aho-Corasick pass); candidates are then scored by the IDF of the matched key terms plus
+// a smaller share for message words that also appear in the key's own answers.
+final class IntentIndex {
+    private static final double ANSWER_TERM_SHARE = 0.35;
+
+    private final KeywordMatcher surfaces;
+    private final int[] surfaceKey;
+    private final double[] surfaceScore;
+    private final double[] keyWeight;
+    private final Map<String, int[]> answerPostings;
+    private final Map<String, Double> idf;
+
+    private IntentIndex(KeywordMatcher surfaces, int[] surfaceKey, double[] surfaceScore, double[] keyWeight,
+                        Map<String, int[]> answerPostings, Map<String, Double> idf) {
+        this.surfaces = surfaces;
+        this.surfaceKey = surfaceKey;
+        this.surfaceScore = surfaceScore;
+        this.keyWeight = keyWeight;
+        this.answerPostings = answerPostings;
+        this.idf = idf;
+    }
+
+    static IntentIndex build(List<String> keys, List<List<String>> answers, double[] weights, List<List<String>> synonyms) {
+        int n = keys.size();
+        Map<String, Set<Integer>> documentsByTerm = new HashMap<>();
+        Map<String, Set<Integer>> answerKeysByTerm = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            for (String term : TextAnalyzer.stems(keys.get(id))) documentsByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(id);
+            for (String synonym : synonyms.get(id)) {
+                for (String term : TextAnalyzer.stems(synonym)) documentsByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(id);
+            }
+            for (String answer : answers.get(id)) {
+                TextAnalyzer.Analysis text = TextAnalyzer.analyze(answer);
+                for (int w = 0; w < text.words.length; w++) {
+                    if (TextAnalyzer.STOP_WORDS.contains(text.words[w])) continue;
+                    String term = text.stems[w];
+                    documentsByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(id);
+                    answerKeysByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(id);
+                }
+            }
+        }
+
+        Map<String, Double> idf = new HashMap<>();
+        for (Map.Entry<String, Set<Integer>> e : documentsByTerm.entrySet()) {
+            idf.put(e.getKey(), Math.log(1.0 + (double) n / e.getValue().size()));
+        }
+        Map<String, int[]> answerPostings = new HashMap<>();
+        for (Map.Entry<String, Set<Integer>> e : answerKeysByTerm.entrySet()) {
+            answerPostings.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).sorted().toArray());
+        }
+
+        List<String> surfaceText = new ArrayList<>();
+        List<Integer> surfaceOwner = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            surfaceText.add(keys.get(id));
+            surfaceOwner.add(id);
+            for (String synonym : synonyms.get(id)) {
+                surfaceText.add(synonym);
+                surfaceOwner.add(id);
+            }
+        }
+        int[] surfaceKey = new int[surfaceText.size()];
+        double[] surfaceScore = new double[surfaceText.size()];
+        for (int i = 0; i < surfaceKey.length; i++) {
+            surfaceKey[i] = surfaceOwner.get(i);
+            double score = 0.0;
+            for (String term : TextAnalyzer.stems(surfaceText.get(i))) score += idf.getOrDefault(term, 0.0);
+            surfaceScore[i] = score;
+        }
+        return new IntentIndex(KeywordMatcher.build(surfaceText), surfaceKey, surfaceScore, weights.clone(), answerPostings, idf);
+    }
+
+    // Best key id for an analyzed message, or -1 when no key or synonym occurs in it
+    int best(TextAnalyzer.Analysis text) {
+        BitSet hits = surfaces.matchAll(text.lower);
+        if (hits.isEmpty()) return -1;
+        Map<Integer, double[]> scores = new HashMap<>();
+        for (int s = hits.nextSetBit(0); s >= 0; s = hits.nextSetBit(s + 1)) {
+            double[] score = scores.computeIfAbsent(surfaceKey[s], k -> new double[1]);
+            score[0] = Math.max(score[0], surfaceScore[s]);
+        }
+        if (scores.size() > 1) {
+            Set<String> seen = new HashSet<>();
+            for (String term : text.stems) {
+                if (!seen.add(term)) continue;
+                int[] postings = answerPostings.get(term);
+                if (postings == null) continue;
+                double termIdf = idf.get(term);
+                for (int id : postings) {
+                    double[] score = scores.get(id);
+                    if (score != null) score[0] += ANSWER_TERM_SHARE * termIdf;
+                }
+            }
+        }
+        int bestId = -1;
+        double bestScore = -1.0;
+        for (Map.Entry<Integer, double[]> e : scores.entrySet()) {
+            int id = e.getKey();
+            double score = e.getValue()[0] * keyWeight[id];
+            if (score > bestScore || (score == bestScore && id < bestId)) {
+                bestScore = score;
+                bestId = id;
+            }
+        }
+        return bestId;
+    }
+}
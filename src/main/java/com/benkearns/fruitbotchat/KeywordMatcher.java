@@ -0,0 +1,140 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+// Aho-Corasick automaton over the response keys, built once per load. A key only counts
+// when it is not glued to another letter or digit, same as the old per-key regex.
+final class KeywordMatcher {
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[][] outputs;
+    private final int[] keyLengths;
+
+    private KeywordMatcher(char[][] labels, int[][] targets, int[] fail, int[][] outputs, int[] keyLengths) {
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.outputs = outputs;
+        this.keyLengths = keyLengths;
+    }
+
+    static KeywordMatcher build(List<String> keys) {
+        List<char[]> nodeLabels = new ArrayList<>();
+        List<int[]> nodeTargets = new ArrayList<>();
+        List<int[]> nodeOutputs = new ArrayList<>();
+        nodeLabels.add(new char[0]);
+        nodeTargets.add(new int[0]);
+        nodeOutputs.add(NO_OUTPUT);
+        int[] keyLengths = new int[keys.size()];
+
+        for (int id = 0; id < keys.size(); id++) {
+            String key = keys.get(id).toLowerCase(Locale.ROOT);
+            keyLengths[id] = key.length();
+            if (key.isEmpty()) continue;
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                int next = find(nodeLabels.get(node), nodeTargets.get(node), c);
+                if (next < 0) {
+                    next = nodeLabels.size();
+                    nodeLabels.add(new char[0]);
+                    nodeTargets.add(new int[0]);
+                    nodeOutputs.add(NO_OUTPUT);
+                    char[] l = Arrays.copyOf(nodeLabels.get(node), nodeLabels.get(node).length + 1);
+                    int[] t = Arrays.copyOf(nodeTargets.get(node), l.length);
+                    l[l.length - 1] = c;
+                    t[t.length - 1] = next;
+                    nodeLabels.set(node, l);
+                    nodeTargets.set(node, t);
+                }
+                node = next;
+            }
+            int[] out = nodeOutputs.get(node);
+            int[] grown = Arrays.copyOf(out, out.length + 1);
+            grown[out.length] = id;
+            nodeOutputs.set(node, grown);
+        }
+
+        int size = nodeLabels.size();
+        char[][] labels = nodeLabels.toArray(new char[0][]);
+        int[][] targets = nodeTargets.toArray(new int[0][]);
+        int[][] outputs = nodeOutputs.toArray(new int[0][]);
+        int[] fail = new int[size];
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < labels[node].length; i++) {
+                char c = labels[node][i];
+                int child = targets[node][i];
+                int f = fail[node];
+                int next = find(labels[f], targets[f], c);
+                while (next < 0 && f != 0) {
+                    f = fail[f];
+                    next = find(labels[f], targets[f], c);
+                }
+                fail[child] = next >= 0 && next != child ? next : 0;
+                int[] inherited = outputs[fail[child]];
+                if (inherited.length > 0) {
+                    int[] merged = Arrays.copyOf(outputs[child], outputs[child].length + inherited.length);
+                    System.arraycopy(inherited, 0, merged, outputs[child].length, inherited.length);
+                    outputs[child] = merged;
+                }
+                queue.add(child);
+            }
+        }
+        return new KeywordMatcher(labels, targets, fail, outputs, keyLengths);
+    }
+
+    BitSet matchAll(CharSequence text) {
+        BitSet found = new BitSet(keyLengths.length);
+        scan(text, found);
+        return found;
+    }
+
+    private void scan(CharSequence text, BitSet found) {
+        int node = 0;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = find(labels[node], targets[node], c);
+            while (next < 0 && node != 0) {
+                node = fail[node];
+                next = find(labels[node], targets[node], c);
+            }
+            node = next < 0 ? 0 : next;
+            int[] out = outputs[node];
+            if (out.length == 0) continue;
+            boolean rightOk = i + 1 >= len || !isWordChar(text.charAt(i + 1));
+            if (!rightOk) continue;
+            for (int id : out) {
+                int start = i - keyLengths[id] + 1;
+                if (start > 0 && isWordChar(text.charAt(start - 1))) continue;
+                found.set(id);
+            }
+        }
+    }
+
+    private static int find(char[] labels, int[] targets, char c) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == c) return targets[i];
+        }
+        return -1;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,34 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.Arrays;
+
+// The last SIZE latencies of one stage in a ring, for the p50/p99 shown by /fruitbotchat stats.
+// Percentiles sort a copy, which only happens when stats are asked for.
+final class LatencyRecorder {
+    private static final int SIZE = 1024;
+
+    private final long[] samples = new long[SIZE];
+    private int next;
+    private int count;
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % SIZE;
+        if (count < SIZE) count++;
+    }
+
+    String describe() {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, count);
+        }
+        if (sorted.length == 0) return "no samples";
+        Arrays.sort(sorted);
+        return "p50 " + millis(sorted, 0.50) + "ms, p99 " + millis(sorted, 0.99) + "ms over " + sorted.length;
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        long nanos = sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+        return (nanos / 100_000) / 10.0;
+    }
+}
@@ -0,0 +1,202 @@
+package com.benkearns.fruitbotchat;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Pages from a MediaWiki XML export (Special:Export or dumpBackup.php) in the plugin folder.
+// The file is read with a streaming StAX parser, one <page> at a time; each article's wikitext
+// is converted on a worker pool, with at most a few pages in flight so memory stays flat however
+// large the dump is. Only main-namespace, non-redirect pages are kept, and a page whose
+// wikitext hashes the same as last time is handed back as-is.
+final class MediaWikiDumpSource implements CorpusSource {
+    private final File dump;
+    private final String baseUrl;
+    private final int threads;
+    private final Logger logger;
+    private volatile String lastLoad = "none";
+
+    MediaWikiDumpSource(File dump, String baseUrl, int threads, Logger logger) {
+        this.dump = dump;
+        this.baseUrl = baseUrl;
+        this.threads = threads;
+        this.logger = logger;
+    }
+
+    @Override
+    public Map<String, WikiPage> load(Map<String, WikiPage> previous) throws InterruptedException {
+        if (!dump.isFile()) {
+            logger.warning("[Wiki] XML dump not found: " + dump.getPath());
+            lastLoad = "dump missing";
+            return new LinkedHashMap<>();
+        }
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, FruitbotChat.namedThreadFactory("Fruitbot-Wiki-Ingest"));
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<Future<WikiPage>> tasks = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(dump), 1 << 16)) {
+            XMLStreamReader xml = newFactory().createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() != XMLStreamConstants.START_ELEMENT || !xml.getLocalName().equals("page")) continue;
+                    RawPage raw = readPage(xml);
+                    if (raw.namespace != 0 || raw.redirect || raw.title == null || raw.text == null) continue;
+                    inFlight.acquire();
+                    try {
+                        tasks.add(pool.submit(() -> {
+                            try {
+                                return convert(raw, previous);
+                            } finally {
+                                inFlight.release();
+                            }
+                        }));
+                    } catch (RuntimeException e) {
+                        inFlight.release();
+                        throw e;
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+            Map<String, WikiPage> pages = CorpusSource.collect(tasks, logger);
+            long reused = pages.values().stream().filter(p -> p == previous.get(p.url)).count();
+            lastLoad = pages.size() + " pages (" + reused + " unchanged) from " + dump.getName() + " in "
+                + (System.currentTimeMillis() - start) + "ms";
+            logger.info("[Wiki] Dump loaded: " + lastLoad);
+            return pages;
+        } catch (IOException | XMLStreamException e) {
+            logger.log(Level.WARNING, "[Wiki] Could not read XML dump " + dump.getPath(), e);
+            lastLoad = "failed: " + e.getMessage();
+            for (Future<WikiPage> task : tasks) task.cancel(true);
+            return new LinkedHashMap<>();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "last dump load: " + lastLoad;
+    }
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    // Reads from <page> to its end tag. Full-history dumps list revisions oldest first, so only
+    // the revision with the latest timestamp is kept (the last one listed on a tie).
+    private static RawPage readPage(XMLStreamReader xml) throws XMLStreamException {
+        RawPage raw = new RawPage();
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) continue;
+            switch (xml.getLocalName()) {
+                case "title":
+                    raw.title = xml.getElementText().trim();
+                    break;
+                case "ns":
+                    raw.namespace = parseNamespace(xml.getElementText());
+                    break;
+                case "redirect":
+                    raw.redirect = true;
+                    depth++;
+                    break;
+                case "revision":
+                    readRevision(xml, raw);
+                    break;
+                default:
+                    depth++;
+                    break;
+            }
+        }
+        return raw;
+    }
+
+    // Reads from <revision> to its end tag, replacing the page's text unless it holds a later revision
+    private static void readRevision(XMLStreamReader xml, RawPage raw) throws XMLStreamException {
+        String timestamp = null;
+        String text = null;
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) continue;
+            switch (xml.getLocalName()) {
+                case "timestamp":
+                    timestamp = xml.getElementText().trim();
+                    break;
+                case "text":
+                    // Suppressed revisions carry an empty <text deleted="deleted"/>
+                    boolean deleted = xml.getAttributeValue(null, "deleted") != null;
+                    String body = xml.getElementText();
+                    if (!deleted) text = body;
+                    break;
+                default:
+                    depth++;
+                    break;
+            }
+        }
+        // ISO 8601 timestamps in UTC sort as strings
+        boolean later = raw.timestamp == null || timestamp == null || timestamp.compareTo(raw.timestamp) >= 0;
+        if (text != null && later) {
+            raw.text = text;
+            raw.timestamp = timestamp;
+        }
+    }
+
+    private static int parseNamespace(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private WikiPage convert(RawPage raw, Map<String, WikiPage> previous) {
+        String url = baseUrl + "/" + raw.title.replace(' ', '_');
+        long hash = WikiPage.hash(raw.text.getBytes(StandardCharsets.UTF_8));
+        WikiPage known = previous.get(url);
+        if (known != null && known.contentHash == hash) return known;
+        byte[] text = WikitextConverter.toText(raw.text).getBytes(StandardCharsets.UTF_8);
+        if (text.length == 0) return null;
+        int version = known == null ? 1 : known.version + 1;
+        return new WikiPage(url, raw.title, text, null, raw.timestamp, List.of(), hash, version);
+    }
+
+    private static final class RawPage {
+        String title;
+        int namespace;
+        boolean redirect;
+        String timestamp;
+        String text;
+    }
+}
@@ -1,5 +1,6 @@
 package com.benkearns.fruitbotchat;
 
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -15,6 +16,10 @@ import java.util.Locale;
 import java.util.UUID;
 
 public class OnboardingListener implements Listener {
+    private static final Component WELCOME_MESSAGE = ChatTemplates.bot("Welcome to Fruit Survival! Please read /rules. Join our Discord with /member or /discord to obtain Member rank. Use /r to reply to Fruitbot if you need help.");
+    private static final ChatTemplates.Template WELCOME_BACK_MESSAGE = ChatTemplates.Template.botLine("Welcome back, %player%");
+    private static final Component REVIEW_NOTICE_MESSAGE = ChatTemplates.bot("Fruitbot has detected and created a suspicious mining path for review. Reply to confirm you have reviewed this notice.");
+    private static final Component CHECKUP_MESSAGE = ChatTemplates.bot("Just checking in. Need any help? Reply with /r and I can assist or message a mod if one is online.");
     private final FruitbotChat plugin;
     private File welcomeFile;
     private File rulesFile;
@@ -24,50 +29,44 @@ public class OnboardingListener implements Listener {
     private FileConfiguration rulesCfg;
     private FileConfiguration checkupsCfg;
     private FileConfiguration mutedCfg;
-    private boolean welcomeEnabled;
-    private boolean welcomeBackEnabled;
-    private boolean checkupEnabled;
-    private long welcomeDelayTicks;
-    private long welcomeBackDelayTicks;
-    private long checkupDelayTicks;
 
     public OnboardingListener(FruitbotChat plugin) {
         this.plugin = plugin;
         loadStores();
-        loadConfig();
     }
 
     @EventHandler
     public void onJoin(PlayerJoinEvent event) {
         Player p = event.getPlayer();
         UUID id = p.getUniqueId();
-        if (welcomeEnabled && !isMuted(id)) {
+        BotConfig cfg = plugin.settings();
+        if (cfg.welcomeEnabled && !isMuted(id)) {
             if (!hasSentWelcome(id)) {
                 new BukkitRunnable() {
                     @Override
                     public void run() {
                         Player now = Bukkit.getPlayer(id);
                         if (now == null || !now.isOnline()) return;
-                        now.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fWelcome to Fruit Survival! Please read /rules. Join our Discord with /member or /discord to obtain Member rank. Use /r to reply to Fruitbot if you need help."));
+                        now.sendMessage(WELCOME_MESSAGE);
                         plugin.markFruitbotAsLastSenderIfUnset(id);
                         setSentWelcome(id);
                         saveStores();
                     }
-                }.runTaskLater(plugin, welcomeDelayTicks);
-            } else if (welcomeBackEnabled) {
+                }.runTaskLater(plugin, cfg.welcomeDelayTicks);
+            } else if (cfg.welcomeBackEnabled) {
                 new BukkitRunnable() {
                     @Override
                     public void run() {
                         Player now = Bukkit.getPlayer(id);
                         if (now == null || !now.isOnline()) return;
-                        now.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fWelcome back, " + now.getName())) ;
+                        now.sendMessage(WELCOME_BACK_MESSAGE.render(now.getName()));
                         plugin.markFruitbotAsLastSenderIfUnset(id);
                     }
-                }.runTaskLater(plugin, welcomeBackDelayTicks);
+                }.runTaskLater(plugin, cfg.welcomeBackDelayTicks);
             }
         }
-        if (checkupEnabled && !hasSentCheckup(id)) {
-            scheduleCheckup(id);
+        if (cfg.checkupEnabled && !hasSentCheckup(id)) {
+            scheduleCheckup(id, cfg.checkupDelayTicks);
         }
 
         if (plugin.isReviewNoticeActive() && p.hasPermission("fruitbotchat.admin")) {
@@ -78,7 +77,7 @@ public class OnboardingListener implements Listener {
                     Player now = Bukkit.getPlayer(id);
                     if (now == null || !now.isOnline()) return;
                     if (plugin.isStaffPending(id)) {
-                        now.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fFruitbot has detected and created a suspicious mining path for review. Reply to confirm you have reviewed this notice."));
+                        now.sendMessage(REVIEW_NOTICE_MESSAGE);
                         plugin.markFruitbotAsLastSenderIfUnset(id);
                     }
                 }
@@ -102,7 +101,7 @@ public class OnboardingListener implements Listener {
         }
     }
 
-    private void scheduleCheckup(UUID id) {
+    private void scheduleCheckup(UUID id, long delayTicks) {
         new BukkitRunnable() {
             @Override
             public void run() {
@@ -110,13 +109,13 @@ public class OnboardingListener implements Listener {
                 if (p == null || !p.isOnline()) return;
                 if (isMuted(id)) return;
                 if (hasSentCheckup(id)) return;
-                p.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fJust checking in. Need any help? Reply with /r and I can assist or message a mod if one is online."));
+                p.sendMessage(CHECKUP_MESSAGE);
                 plugin.markFruitbotAsLastSenderIfUnset(id);
                 plugin.markFruitbotAsLastTarget(id);
                 setSentCheckup(id);
                 saveStores();
             }
-        }.runTaskLater(plugin, checkupDelayTicks);
+        }.runTaskLater(plugin, delayTicks);
     }
 
     private void loadStores() {
@@ -150,16 +149,6 @@ public class OnboardingListener implements Listener {
         }
     }
 
-    public void loadConfig() {
-        FileConfiguration cfg = plugin.getConfig();
-        welcomeEnabled = cfg.getBoolean("onboarding.welcome-enabled", true);
-        welcomeBackEnabled = cfg.getBoolean("onboarding.welcome-back-enabled", true);
-        checkupEnabled = cfg.getBoolean("onboarding.checkup-enabled", true);
-        welcomeDelayTicks = cfg.getLong("onboarding.welcome-delay-seconds", 10L) * 20L;
-        welcomeBackDelayTicks = cfg.getLong("onboarding.welcome-back-delay-seconds", 5L) * 20L;
-        checkupDelayTicks = cfg.getLong("onboarding.checkup-delay-seconds", 900L) * 20L;
-    }
-
     private boolean hasSentWelcome(UUID id) {
         return welcomeCfg.getBoolean(id.toString(), false);
     }
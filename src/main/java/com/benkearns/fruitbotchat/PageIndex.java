@@ -0,0 +1,101 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Everything derived from one wiki page: its sections, their BM25 postings and its sentences.
+// Built once per page version and carried into the next corpus while the body hash is unchanged.
+// Sections and sentences are byte ranges of the page's own UTF-8 text, which is never copied.
+// Sections start at the "#"-marked heading lines HtmlTextExtractor writes and are titled by
+// their whole heading path, so "Claims > Claiming land" matches on both levels.
+final class PageIndex {
+    final WikiPage page;
+    final SectionIndex sections;
+    final SentenceStore sentences;
+
+    private PageIndex(WikiPage page, SectionIndex sections, SentenceStore sentences) {
+        this.page = page;
+        this.sections = sections;
+        this.sentences = sentences;
+    }
+
+    static PageIndex build(WikiPage page, TermDictionary dictionary) {
+        byte[] text = page.text;
+        List<String> names = new ArrayList<>();
+        List<int[]> spans = new ArrayList<>();
+        String[] path = new String[7];
+        String currentSection = page.name;
+        int sectionStart = -1;
+        int sectionEnd = -1;
+
+        int lineStart = 0;
+        for (int i = 0; i <= text.length; i++) {
+            if (i < text.length && text[i] != '\n') continue;
+            int from = lineStart;
+            int to = i;
+            lineStart = i + 1;
+            while (from < to && SentenceStore.isSpace(text[from])) from++;
+            while (to > from && SentenceStore.isSpace(text[to - 1])) to--;
+            if (from == to) continue;
+
+            int level = headingLevel(text, from, to);
+            if (level > 0) {
+                if (sectionStart >= 0) {
+                    names.add(currentSection.toLowerCase(Locale.ROOT));
+                    spans.add(new int[]{sectionStart, sectionEnd});
+                }
+                String heading = new String(text, from + level, to - from - level, StandardCharsets.UTF_8);
+                path[level] = heading.replaceAll("[^a-zA-Z0-9\\s]", "").trim();
+                for (int deeper = level + 1; deeper < path.length; deeper++) path[deeper] = null;
+                currentSection = titleOf(path, level);
+                sectionStart = -1;
+            } else {
+                if (sectionStart < 0) sectionStart = from;
+                sectionEnd = to;
+            }
+        }
+
+        if (sectionStart >= 0) {
+            names.add(currentSection.toLowerCase(Locale.ROOT));
+            spans.add(new int[]{sectionStart, sectionEnd});
+        }
+        return new PageIndex(page, SectionIndex.build(names, text, spans, dictionary), SentenceStore.build(text, spans, dictionary));
+    }
+
+    // Same index under the newer page record (fresh validators, identical body)
+    PageIndex withPage(WikiPage newer) {
+        return newer == page ? this : new PageIndex(newer, sections, sentences);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        sections.writeTo(out);
+        sentences.writeTo(out);
+    }
+
+    // The index of a snapshot page as writeTo left it, without re-parsing the text
+    static PageIndex readFrom(ByteBuffer buf, WikiPage page) {
+        return new PageIndex(page, SectionIndex.readFrom(buf), SentenceStore.readFrom(buf, page.text));
+    }
+
+    // 1-6 for a line of that many '#' followed by a space, otherwise 0
+    private static int headingLevel(byte[] text, int from, int to) {
+        int level = 0;
+        while (from + level < to && text[from + level] == '#') level++;
+        return level >= 1 && level <= 6 && from + level < to && text[from + level] == ' ' ? level : 0;
+    }
+
+    private static String titleOf(String[] path, int level) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 1; i <= level; i++) {
+            if (path[i] == null || path[i].isEmpty()) continue;
+            if (title.length() > 0) title.append(" > ");
+            title.append(path[i]);
+        }
+        return title.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.benkearns.fruitbotchat;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// All per-player Fruitbot state in one map. Entries are created on first use, dropped on quit,
+// and anything left behind for a player who is no longer online expires after OFFLINE_TTL_MS.
+// Rate-limit buckets live in ReplyLimiter instead, since a quit must not refill them; the same
+// sweep drops the ones that have refilled.
+public class PlayerSessions implements Listener {
+    private static final long OFFLINE_TTL_MS = 10L * 60L * 1000L;
+    private static final long SWEEP_TICKS = 5L * 60L * 20L;
+
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+    public PlayerSessions(FruitbotChat plugin) {
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                expireOffline(System.currentTimeMillis());
+                plugin.getReplyLimiter().expireRefilled();
+            }
+        }.runTaskTimer(plugin, SWEEP_TICKS, SWEEP_TICKS);
+    }
+
+    public PlayerSession get(UUID id) {
+        PlayerSession session = sessions.computeIfAbsent(id, k -> new PlayerSession());
+        session.touch();
+        return session;
+    }
+
+    public PlayerSession peek(UUID id) {
+        return sessions.get(id);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
+    }
+
+    private void expireOffline(long now) {
+        sessions.entrySet().removeIf(e -> now - e.getValue().lastActive > OFFLINE_TTL_MS && Bukkit.getPlayer(e.getKey()) == null);
+    }
+
+    public static final class PlayerSession {
+        volatile long lastActive;
+        volatile long lastMessageAt;
+        volatile boolean fruitbotSender;
+        volatile boolean lastTargetFruitbot;
+        volatile boolean pendingMute;
+        volatile boolean staffPendingReview;
+        volatile FruitbotChat.PendingConfigChange pendingConfig;
+
+        void touch() {
+            lastActive = System.currentTimeMillis();
+        }
+    }
+}
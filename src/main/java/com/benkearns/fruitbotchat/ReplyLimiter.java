@@ -0,0 +1,187 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Global and per-player token buckets for keyword replies and wiki lookups, plus a cap on
+// replies that are queued or being built. Anything over a limit is answered with the canned
+// default instead of queueing more work. A request refused by a later check gets back the
+// tokens earlier checks took, so it costs the player nothing. Player buckets are keyed by UUID
+// and outlive the session, so logging out and back in does not refill them; a bucket is only
+// dropped by expireRefilled once it is full again. Limits come from the published BotConfig;
+// configure swaps in fresh global buckets only for limits that changed, and player buckets pick
+// up new limits as they are recreated.
+public class ReplyLimiter {
+    private volatile Limit globalReplyLimit;
+    private volatile Limit globalWikiLimit;
+    private volatile TokenBucket globalReplies;
+    private volatile TokenBucket globalWiki;
+    private volatile Limit playerReplies;
+    private volatile Limit playerWiki;
+    private volatile int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Map<UUID, PlayerBuckets> players = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedGlobalReply = new AtomicLong();
+    private final AtomicLong rejectedPlayerReply = new AtomicLong();
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong rejectedGlobalWiki = new AtomicLong();
+    private final AtomicLong rejectedPlayerWiki = new AtomicLong();
+
+    public ReplyLimiter(BotConfig cfg) {
+        configure(cfg);
+    }
+
+    // Main thread only, whenever a new BotConfig is published
+    public void configure(BotConfig cfg) {
+        Limit reply = new Limit(cfg.replyGlobalPerSecond, cfg.replyGlobalBurst);
+        if (!reply.equals(globalReplyLimit)) {
+            globalReplyLimit = reply;
+            globalReplies = reply.newBucket();
+        }
+        Limit wiki = new Limit(cfg.wikiGlobalPerSecond, cfg.wikiGlobalBurst);
+        if (!wiki.equals(globalWikiLimit)) {
+            globalWikiLimit = wiki;
+            globalWiki = wiki.newBucket();
+        }
+        playerReplies = new Limit(cfg.replyPlayerPerSecond, cfg.replyPlayerBurst);
+        playerWiki = new Limit(cfg.wikiPlayerPerSecond, cfg.wikiPlayerBurst);
+        maxPending = cfg.maxPendingReplies;
+    }
+
+    // Takes a reply token and a pending slot; release the slot with exitPending once the reply is built
+    public boolean tryAdmitReply(UUID playerId) {
+        TokenBucket bucket = buckets(playerId).reply;
+        if (!bucket.tryAcquire()) {
+            rejectedPlayerReply.incrementAndGet();
+            return false;
+        }
+        TokenBucket global = globalReplies;
+        if (!global.tryAcquire()) {
+            bucket.refund();
+            rejectedGlobalReply.incrementAndGet();
+            return false;
+        }
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            global.refund();
+            bucket.refund();
+            rejectedQueueFull.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void exitPending() {
+        pending.decrementAndGet();
+    }
+
+    // A null player only draws on the global wiki bucket
+    public boolean tryAcquireWiki(UUID playerId) {
+        TokenBucket bucket = playerId == null ? null : buckets(playerId).wiki;
+        if (bucket != null && !bucket.tryAcquire()) {
+            rejectedPlayerWiki.incrementAndGet();
+            return false;
+        }
+        if (!globalWiki.tryAcquire()) {
+            if (bucket != null) bucket.refund();
+            rejectedGlobalWiki.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private PlayerBuckets buckets(UUID playerId) {
+        return players.computeIfAbsent(playerId, id -> new PlayerBuckets(playerReplies.newBucket(), playerWiki.newBucket()));
+    }
+
+    // Drops player buckets that have refilled completely; a new one would start in the same state
+    public void expireRefilled() {
+        players.values().removeIf(b -> b.reply.isFull() && b.wiki.isFull());
+    }
+
+    public String describe() {
+        return "pending " + pending.get() + "/" + maxPending
+            + ", rejected replies: player " + rejectedPlayerReply.get()
+            + ", global " + rejectedGlobalReply.get()
+            + ", queue full " + rejectedQueueFull.get()
+            + "; rejected wiki: player " + rejectedPlayerWiki.get()
+            + ", global " + rejectedGlobalWiki.get();
+    }
+
+    private static final class Limit {
+        final double perSecond;
+        final int burst;
+
+        Limit(double perSecond, int burst) {
+            this.perSecond = perSecond;
+            this.burst = burst;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Limit)) return false;
+            Limit other = (Limit) o;
+            return perSecond == other.perSecond && burst == other.burst;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(perSecond) * 31 + burst;
+        }
+
+        TokenBucket newBucket() {
+            return new TokenBucket(burst, perSecond);
+        }
+    }
+
+    private static final class PlayerBuckets {
+        final TokenBucket reply;
+        final TokenBucket wiki;
+
+        PlayerBuckets(TokenBucket reply, TokenBucket wiki) {
+            this.reply = reply;
+            this.wiki = wiki;
+        }
+    }
+
+    static final class TokenBucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, double perSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = perSecond / 1_000_000_000.0;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire() {
+            refill();
+            if (tokens < 1.0) return false;
+            tokens -= 1.0;
+            return true;
+        }
+
+        // Returns a token taken by tryAcquire for a request that was refused further on
+        synchronized void refund() {
+            tokens = Math.min(capacity, tokens + 1.0);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+            lastRefill = now;
+        }
+    }
+}
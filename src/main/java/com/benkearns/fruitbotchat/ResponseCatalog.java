@@ -0,0 +1,79 @@
+package com.benkearns.fruitbotchat;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Immutable compiled form of responses.yml. A reply reads one catalog reference and works
+// against it to the end, so a hot reload never changes the data under an in-flight message.
+final class ResponseCatalog {
+    static final ResponseCatalog EMPTY = new ResponseCatalog(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+        new double[0], Collections.emptyList(), Collections.emptyList());
+
+    final List<String> keys;
+    final List<List<ChatTemplates.Template>> texts;
+    final List<ChatTemplates.Template> defaults;
+    final IntentIndex intents;
+    final FuzzyKeyIndex fuzzy;
+
+    private ResponseCatalog(List<String> keys, List<List<ChatTemplates.Template>> texts, List<ChatTemplates.Template> defaults,
+                            double[] weights, List<List<String>> synonyms, List<String> neverCorrect) {
+        this.keys = keys;
+        this.texts = texts;
+        this.defaults = defaults;
+        List<List<String>> answers = new ArrayList<>(texts.size());
+        Set<String> knownWords = new HashSet<>();
+        for (List<ChatTemplates.Template> options : texts) {
+            List<String> plain = new ArrayList<>(options.size());
+            for (ChatTemplates.Template t : options) {
+                plain.add(t.plain);
+                knownWords.addAll(Arrays.asList(TextAnalyzer.analyze(t.plain).words));
+            }
+            answers.add(plain);
+        }
+        for (List<String> options : synonyms) {
+            for (String synonym : options) knownWords.addAll(Arrays.asList(TextAnalyzer.analyze(synonym).words));
+        }
+        for (String word : neverCorrect) knownWords.addAll(Arrays.asList(TextAnalyzer.analyze(word).words));
+        this.intents = IntentIndex.build(keys, answers, weights, synonyms);
+        this.fuzzy = FuzzyKeyIndex.build(keys, knownWords);
+    }
+
+    static ResponseCatalog compile(FileConfiguration responses) {
+        List<String> keys = new ArrayList<>();
+        List<List<ChatTemplates.Template>> texts = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        List<List<String>> synonyms = new ArrayList<>();
+        ConfigurationSection section = responses.getConfigurationSection("responses");
+        ConfigurationSection intents = responses.getConfigurationSection("intents");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                List<String> possibleResponses = section.getStringList(key);
+                if (possibleResponses.isEmpty()) continue;
+                keys.add(key);
+                texts.add(compileTemplates(possibleResponses));
+                ConfigurationSection intent = intents == null ? null : intents.getConfigurationSection(key);
+                weights.add(intent == null ? 1.0 : Math.max(0.0, intent.getDouble("weight", 1.0)));
+                synonyms.add(intent == null ? Collections.emptyList() : List.copyOf(intent.getStringList("synonyms")));
+            }
+        }
+        double[] weightArray = new double[weights.size()];
+        for (int i = 0; i < weightArray.length; i++) weightArray[i] = weights.get(i);
+        return new ResponseCatalog(List.copyOf(keys), List.copyOf(texts), compileTemplates(responses.getStringList("default")),
+            weightArray, List.copyOf(synonyms), responses.getStringList("fuzzy.never-correct"));
+    }
+
+    private static List<ChatTemplates.Template> compileTemplates(List<String> lines) {
+        List<ChatTemplates.Template> templates = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            templates.add(ChatTemplates.Template.botLine(line));
+        }
+        return List.copyOf(templates);
+    }
+}
@@ -0,0 +1,96 @@
+package com.benkearns.fruitbotchat;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Watches the data folder for edits to responses.yml and recompiles it off the main thread.
+// Bursts of write events from editors are collapsed by waiting for the file to go quiet.
+public class ResponsesWatcher {
+    private static final long SETTLE_MS = 500L;
+
+    private final File file;
+    private final Consumer<ResponseCatalog> onReload;
+    private final Logger logger;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public ResponsesWatcher(File file, Consumer<ResponseCatalog> onReload, Logger logger) throws IOException {
+        this.file = file;
+        this.onReload = onReload;
+        this.logger = logger;
+        this.watchService = file.toPath().getFileSystem().newWatchService();
+        file.getParentFile().toPath().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "Fruitbot-ResponsesWatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {}
+        thread.interrupt();
+    }
+
+    private void run() {
+        Path name = file.toPath().getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean touched = drain(key, name);
+                while (touched) {
+                    WatchKey more = watchService.poll(SETTLE_MS, TimeUnit.MILLISECONDS);
+                    if (more == null) break;
+                    drain(more, name);
+                }
+                if (touched) reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private boolean drain(WatchKey key, Path name) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (name.equals(event.context())) touched = true;
+        }
+        key.reset();
+        return touched;
+    }
+
+    private void reload() {
+        if (!file.exists()) return;
+        YamlConfiguration yaml = new YamlConfiguration();
+        try {
+            yaml.load(file);
+        } catch (IOException | InvalidConfigurationException e) {
+            logger.warning("responses.yml changed but could not be parsed, keeping the previous responses: " + e.getMessage());
+            return;
+        }
+        long started = System.nanoTime();
+        ResponseCatalog catalog;
+        try {
+            catalog = ResponseCatalog.compile(yaml);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "responses.yml changed but could not be compiled, keeping the previous responses", e);
+            return;
+        }
+        onReload.accept(catalog);
+        logger.info("Reloaded responses.yml: " + catalog.keys.size() + " keys in "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + "ms");
+    }
+}
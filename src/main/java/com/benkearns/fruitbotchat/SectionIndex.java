@@ -0,0 +1,210 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Positional inverted index over the sections of one wiki page, ranked with BM25 against the
+// corpus-wide statistics in WikiCorpus. Section titles weigh NAME_WEIGHT times as much as body
+// text, and query words that sit next to each other in a section earn a phrase bonus, so a query
+// only touches its own posting lists. Terms are TermDictionary ids and all posting lists share
+// flat arrays (entries of the term in slot i sit at termStart[i] until termStart[i + 1]); the
+// section text itself stays in the page's UTF-8 bytes.
+final class SectionIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_WEIGHT = 2.5;
+    private static final double PHRASE_BONUS = 1.5;
+
+    final String[] names;
+    private final int[] lengths;
+    final long totalLength;
+    final int[] terms;
+    private final int[] termStart;
+    private final int[] docs;
+    private final int[] nameFreqs;
+    private final int[] positionStart;
+    private final int[] positions;
+
+    private SectionIndex(String[] names, int[] lengths, int[] terms, int[] termStart, int[] docs, int[] nameFreqs,
+                         int[] positionStart, int[] positions) {
+        this.names = names;
+        this.lengths = lengths;
+        this.terms = terms;
+        this.termStart = termStart;
+        this.docs = docs;
+        this.nameFreqs = nameFreqs;
+        this.positionStart = positionStart;
+        this.positions = positions;
+        long total = 0;
+        for (int length : lengths) total += length;
+        this.totalLength = total;
+    }
+
+    // Sections are [start, end) byte ranges of the page text, titled by the matching names
+    static SectionIndex build(List<String> sectionNames, byte[] text, List<int[]> spans, TermDictionary dictionary) {
+        int n = sectionNames.size();
+        String[] names = sectionNames.toArray(new String[0]);
+        int[] lengths = new int[n];
+        Map<Integer, List<int[]>> entries = new HashMap<>();
+        int positionCount = 0;
+        for (int id = 0; id < n; id++) {
+            int[] span = spans.get(id);
+            Map<Integer, List<Integer>> bodyPositions = new HashMap<>();
+            List<String> body = TextAnalyzer.stems(new String(text, span[0], span[1] - span[0], StandardCharsets.UTF_8));
+            for (int pos = 0; pos < body.size(); pos++) {
+                bodyPositions.computeIfAbsent(dictionary.intern(body.get(pos)), t -> new ArrayList<>()).add(pos);
+            }
+            Map<Integer, Integer> nameCounts = new HashMap<>();
+            List<String> title = TextAnalyzer.stems(names[id]);
+            for (String term : title) nameCounts.merge(dictionary.intern(term), 1, Integer::sum);
+            lengths[id] = body.size() + title.size();
+
+            // Each entry is {section, title count, body positions...}
+            for (Map.Entry<Integer, List<Integer>> e : bodyPositions.entrySet()) {
+                int[] entry = new int[2 + e.getValue().size()];
+                entry[0] = id;
+                entry[1] = nameCounts.getOrDefault(e.getKey(), 0);
+                for (int i = 0; i < e.getValue().size(); i++) entry[2 + i] = e.getValue().get(i);
+                entries.computeIfAbsent(e.getKey(), t -> new ArrayList<>()).add(entry);
+                positionCount += e.getValue().size();
+            }
+            for (Map.Entry<Integer, Integer> e : nameCounts.entrySet()) {
+                if (!bodyPositions.containsKey(e.getKey())) {
+                    entries.computeIfAbsent(e.getKey(), t -> new ArrayList<>()).add(new int[]{id, e.getValue()});
+                }
+            }
+        }
+
+        int[] terms = entries.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] termStart = new int[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) termStart[i + 1] = termStart[i] + entries.get(terms[i]).size();
+        int entryCount = termStart[terms.length];
+        int[] docs = new int[entryCount];
+        int[] nameFreqs = new int[entryCount];
+        int[] positionStart = new int[entryCount + 1];
+        int[] positions = new int[positionCount];
+        int e = 0;
+        for (int term : terms) {
+            for (int[] entry : entries.get(term)) {
+                docs[e] = entry[0];
+                nameFreqs[e] = entry[1];
+                System.arraycopy(entry, 2, positions, positionStart[e], entry.length - 2);
+                positionStart[e + 1] = positionStart[e] + entry.length - 2;
+                e++;
+            }
+        }
+        return new SectionIndex(names, lengths, terms, termStart, docs, nameFreqs, positionStart, positions);
+    }
+
+    // The arrays as they are, for WikiSnapshotStore
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(names.length);
+        for (String name : names) WikiSnapshotStore.writeString(out, name);
+        WikiSnapshotStore.writeInts(out, lengths);
+        WikiSnapshotStore.writeInts(out, terms);
+        WikiSnapshotStore.writeInts(out, termStart);
+        WikiSnapshotStore.writeInts(out, docs);
+        WikiSnapshotStore.writeInts(out, nameFreqs);
+        WikiSnapshotStore.writeInts(out, positionStart);
+        WikiSnapshotStore.writeInts(out, positions);
+    }
+
+    static SectionIndex readFrom(ByteBuffer buf) {
+        String[] names = new String[buf.getInt()];
+        for (int i = 0; i < names.length; i++) names[i] = WikiSnapshotStore.readString(buf);
+        return new SectionIndex(names, WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf),
+            WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf),
+            WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf));
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    // Adds (sign 1) or removes (sign -1) this page's per-term section counts from corpus-wide df
+    void applyTo(int[] df, int sign) {
+        for (int i = 0; i < terms.length; i++) df[terms[i]] += sign * (termStart[i + 1] - termStart[i]);
+    }
+
+    // Best section for distinct query term ids (in query order), given each one's slot in `terms`
+    // or -1 when this page lacks it; null when none match
+    Hit best(int[] query, int[] slots, WikiCorpus corpus) {
+        if (query.length == 0 || names.length == 0) return null;
+        double averageLength = corpus.averageSectionLength();
+        Map<Integer, Hit> hits = new HashMap<>();
+        for (int q = 0; q < query.length; q++) {
+            int slot = slots[q];
+            if (slot < 0) continue;
+            double idf = corpus.idf(query[q]);
+            for (int e = termStart[slot]; e < termStart[slot + 1]; e++) {
+                int doc = docs[e];
+                int bodyFreq = positionStart[e + 1] - positionStart[e];
+                double tf = bodyFreq + NAME_WEIGHT * nameFreqs[e];
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                Hit hit = hits.computeIfAbsent(doc, Hit::new);
+                hit.score += idf * tf * (K1 + 1) / (tf + norm);
+                hit.matchedTerms++;
+                if (nameFreqs[e] > 0) hit.nameMatched = true;
+            }
+        }
+        if (hits.isEmpty()) return null;
+
+        for (int t = 0; t + 1 < query.length; t++) {
+            int first = slots[t];
+            int second = slots[t + 1];
+            if (first < 0 || second < 0 || first == second) continue;
+            double bonus = PHRASE_BONUS * Math.min(corpus.idf(query[t]), corpus.idf(query[t + 1]));
+            int i = termStart[first];
+            int j = termStart[second];
+            while (i < termStart[first + 1] && j < termStart[second + 1]) {
+                if (docs[i] < docs[j]) {
+                    i++;
+                } else if (docs[i] > docs[j]) {
+                    j++;
+                } else {
+                    if (adjacent(i, j)) hits.get(docs[i]).score += bonus;
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        Hit best = null;
+        for (Hit hit : hits.values()) {
+            if (best == null || hit.score > best.score || (hit.score == best.score && hit.section < best.section)) best = hit;
+        }
+        return best;
+    }
+
+    // True when some body position of entry i is directly followed by a body position of entry j
+    private boolean adjacent(int i, int j) {
+        int a = positionStart[i];
+        int aEnd = positionStart[i + 1];
+        int b = positionStart[j];
+        int bEnd = positionStart[j + 1];
+        while (a < aEnd && b < bEnd) {
+            int want = positions[a] + 1;
+            if (positions[b] == want) return true;
+            if (positions[b] < want) b++;
+            else a++;
+        }
+        return false;
+    }
+
+    static final class Hit {
+        final int section;
+        double score;
+        int matchedTerms;
+        boolean nameMatched;
+
+        Hit(int section) {
+            this.section = section;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Every sentence of one wiki page, segmented once per page version. A sentence is a byte range
+// of the page's UTF-8 text plus its stemmed tokens as TermDictionary ids, packed into one array;
+// sections own contiguous id ranges and term postings (flat, like SectionIndex) map ids to
+// sentences, so summaries never re-split or re-lowercase text and only the chosen sentences
+// are ever decoded. Sentence lengths are kept in UTF-16 chars, the unit the summary length
+// limits have always been in, so non-ASCII text is cut off where it was before.
+final class SentenceStore {
+    private final byte[] text;
+    private final int[] start;
+    private final int[] end;
+    private final int[] chars;
+    private final int[] firstOfSection;
+    private final int[] tokenStart;
+    private final int[] tokens;
+    private final int[] terms;
+    private final int[] postingStart;
+    private final int[] postings;
+
+    private SentenceStore(byte[] text, int[] start, int[] end, int[] chars, int[] firstOfSection, int[] tokenStart, int[] tokens,
+                          int[] terms, int[] postingStart, int[] postings) {
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        this.chars = chars;
+        this.firstOfSection = firstOfSection;
+        this.tokenStart = tokenStart;
+        this.tokens = tokens;
+        this.terms = terms;
+        this.postingStart = postingStart;
+        this.postings = postings;
+    }
+
+    // Sections are [start, end) byte ranges of the page text
+    static SentenceStore build(byte[] text, List<int[]> sections, TermDictionary dictionary) {
+        List<int[]> spans = new ArrayList<>();
+        int[] firstOfSection = new int[sections.size() + 1];
+        for (int section = 0; section < sections.size(); section++) {
+            firstOfSection[section] = spans.size();
+            segment(text, sections.get(section), spans);
+        }
+        firstOfSection[sections.size()] = spans.size();
+
+        int n = spans.size();
+        int[] start = new int[n];
+        int[] end = new int[n];
+        int[] chars = new int[n];
+        int[] tokenStart = new int[n + 1];
+        int[] tokens = new int[16];
+        int count = 0;
+        Map<Integer, List<Integer>> ids = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            int[] span = spans.get(id);
+            start[id] = span[0];
+            end[id] = span[1];
+            chars[id] = utf16Length(text, span[0], span[1]);
+            tokenStart[id] = count;
+            for (String word : TextAnalyzer.stems(new String(text, span[0], span[1] - span[0], StandardCharsets.UTF_8))) {
+                if (count == tokens.length) tokens = Arrays.copyOf(tokens, count * 2);
+                int term = dictionary.intern(word);
+                tokens[count++] = term;
+                List<Integer> list = ids.computeIfAbsent(term, w -> new ArrayList<>());
+                if (list.isEmpty() || list.get(list.size() - 1) != id) list.add(id);
+            }
+        }
+        tokenStart[n] = count;
+        int[] terms = ids.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] postingStart = new int[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) postingStart[i + 1] = postingStart[i] + ids.get(terms[i]).size();
+        int[] postings = new int[postingStart[terms.length]];
+        for (int i = 0; i < terms.length; i++) {
+            List<Integer> list = ids.get(terms[i]);
+            for (int k = 0; k < list.size(); k++) postings[postingStart[i] + k] = list.get(k);
+        }
+        return new SentenceStore(text, start, end, chars, firstOfSection, tokenStart, Arrays.copyOf(tokens, count),
+            terms, postingStart, postings);
+    }
+
+    // A sentence ends at . ! or ? followed by whitespace or the end of the section
+    // The arrays as they are, for WikiSnapshotStore; the text is stored with the page
+    void writeTo(DataOutputStream out) throws IOException {
+        WikiSnapshotStore.writeInts(out, start);
+        WikiSnapshotStore.writeInts(out, end);
+        WikiSnapshotStore.writeInts(out, chars);
+        WikiSnapshotStore.writeInts(out, firstOfSection);
+        WikiSnapshotStore.writeInts(out, tokenStart);
+        WikiSnapshotStore.writeInts(out, tokens);
+        WikiSnapshotStore.writeInts(out, terms);
+        WikiSnapshotStore.writeInts(out, postingStart);
+        WikiSnapshotStore.writeInts(out, postings);
+    }
+
+    static SentenceStore readFrom(ByteBuffer buf, byte[] text) {
+        return new SentenceStore(text, WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf),
+            WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf),
+            WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf), WikiSnapshotStore.readInts(buf),
+            WikiSnapshotStore.readInts(buf));
+    }
+
+    private static void segment(byte[] text, int[] section, List<int[]> out) {
+        int begin = -1;
+        int last = section[1] - 1;
+        for (int i = section[0]; i <= last; i++) {
+            byte c = text[i];
+            if (begin < 0) {
+                if (!isSpace(c)) begin = i;
+                else continue;
+            }
+            if ((c == '.' || c == '!' || c == '?') && (i == last || isSpace(text[i + 1]))) {
+                out.add(new int[]{begin, i + 1});
+                begin = -1;
+            } else if (i == last) {
+                int stop = i + 1;
+                while (stop > begin && isSpace(text[stop - 1])) stop--;
+                out.add(new int[]{begin, stop});
+            }
+        }
+    }
+
+    // Every byte but a continuation byte starts a char; a four-byte sequence is a surrogate pair
+    static int utf16Length(byte[] text, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            int b = text[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) length++;
+            if (b >= 0xF0) length++;
+        }
+        return length;
+    }
+
+    static boolean isSpace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+    }
+
+    // Decoded sentence with the page's line breaks folded into spaces
+    String text(int id) {
+        String sentence = new String(text, start[id], end[id] - start[id], StandardCharsets.UTF_8);
+        return sentence.indexOf('\n') < 0 ? sentence : sentence.replaceAll("\\s*\n\\s*", " ");
+    }
+
+    // Length in UTF-16 chars, as String.length() of the decoded sentence
+    int length(int id) {
+        return chars[id];
+    }
+
+    int firstOf(int section) {
+        return section < firstOfSection.length - 1 && firstOfSection[section] < firstOfSection[section + 1]
+            ? firstOfSection[section] : -1;
+    }
+
+    // Sentence ids of one section, in order, holding at least `need` of the distinct query terms
+    List<Integer> findInSection(int section, int[] query, int need, int minLength, int maxLength, int limit) {
+        List<Integer> found = new ArrayList<>(limit);
+        if (need == 0) return found;
+        for (int id = firstOfSection[section]; id < firstOfSection[section + 1] && found.size() < limit; id++) {
+            int length = length(id);
+            if (length < minLength || length > maxLength) continue;
+            if (countTerms(id, query) >= need) found.add(id);
+        }
+        return found;
+    }
+
+    // Sentence ids of the page, in order, holding at least `need` of the distinct query terms
+    List<Integer> find(int[] query, int need, int minLength, int maxLength, int limit) {
+        List<Integer> found = new ArrayList<>(limit);
+        if (need == 0) return found;
+        Map<Integer, int[]> counts = new HashMap<>();
+        for (int term : query) {
+            int i = term < 0 ? -1 : Arrays.binarySearch(terms, term);
+            if (i < 0) continue;
+            for (int p = postingStart[i]; p < postingStart[i + 1]; p++) counts.computeIfAbsent(postings[p], k -> new int[1])[0]++;
+        }
+        int[] candidates = counts.entrySet().stream()
+            .filter(e -> e.getValue()[0] >= need)
+            .mapToInt(Map.Entry::getKey)
+            .toArray();
+        Arrays.sort(candidates);
+        for (int id : candidates) {
+            int length = length(id);
+            if (length < minLength || length > maxLength) continue;
+            found.add(id);
+            if (found.size() >= limit) break;
+        }
+        return found;
+    }
+
+    private int countTerms(int id, int[] query) {
+        int count = 0;
+        for (int term : query) {
+            if (term < 0) continue;
+            for (int t = tokenStart[id]; t < tokenStart[id + 1]; t++) {
+                if (tokens[t] == term) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,64 @@
+package com.benkearns.fruitbotchat;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SocialSpyRegistry implements Listener {
+    private static final String SPY_PERMISSION = "essentials.socialspy";
+    private static final long RESYNC_TICKS = 30L * 20L;
+
+    private final Map<UUID, Player> spies = new ConcurrentHashMap<>();
+
+    public SocialSpyRegistry(FruitbotChat plugin) {
+        Bukkit.getOnlinePlayers().forEach(this::refresh);
+        // Bukkit has no event for permission changes, so pick up grants/revokes on a slow timer
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                Bukkit.getOnlinePlayers().forEach(SocialSpyRegistry.this::refresh);
+            }
+        }.runTaskTimer(plugin, RESYNC_TICKS, RESYNC_TICKS);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        spies.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    public void refresh(Player player) {
+        if (player.isOnline() && player.hasPermission(SPY_PERMISSION)) {
+            spies.put(player.getUniqueId(), player);
+        } else {
+            spies.remove(player.getUniqueId());
+        }
+    }
+
+    public void broadcast(UUID exclude, Component line) {
+        for (Map.Entry<UUID, Player> entry : spies.entrySet()) {
+            if (entry.getKey().equals(exclude)) continue;
+            entry.getValue().sendMessage(line);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only map from stem to a dense int id. Every corpus build shares one dictionary, so
+// each stem is stored once and the ids inside reused PageIndexes stay valid. Only the index
+// builder adds terms; query threads just look them up.
+final class TermDictionary {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private int next;
+
+    TermDictionary() {
+    }
+
+    // Terms indexed by id, as written by terms()
+    TermDictionary(String[] terms) {
+        for (String term : terms) {
+            if (ids.put(term, next++) != null) throw new IllegalArgumentException("duplicate term " + term);
+        }
+    }
+
+    synchronized int intern(String term) {
+        Integer id = ids.get(term);
+        if (id != null) return id;
+        ids.put(term, next);
+        return next++;
+    }
+
+    // Id of a term, or -1 when no page has ever contained it
+    int id(String term) {
+        return ids.getOrDefault(term, -1);
+    }
+
+    // Id of each term, or -1 for terms no page has ever contained
+    int[] lookup(List<String> terms) {
+        int[] result = new int[terms.size()];
+        for (int i = 0; i < result.length; i++) result[i] = ids.getOrDefault(terms.get(i), -1);
+        return result;
+    }
+
+    synchronized int size() {
+        return next;
+    }
+
+    // Every term, indexed by its id
+    synchronized String[] terms() {
+        String[] terms = new String[next];
+        ids.forEach((term, id) -> terms[id] = term);
+        return terms;
+    }
+}
@@ -0,0 +1,168 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// The one text pipeline shared by the reply path, the response catalog and the wiki index:
+// lowercase, drop &/§ color codes, split on anything that isn't a letter or digit, and
+// lightly stem each word. A message is analyzed once and the result handed to every matcher.
+final class TextAnalyzer {
+    static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "can", "do", "does", "for", "from",
+            "get", "have", "how", "i", "if", "in", "is", "it", "me", "my", "of", "on", "or", "please",
+            "so", "that", "the", "there", "this", "to", "u", "what", "when", "where", "who", "why",
+            "will", "with", "you", "your"
+    ));
+    private static final String COLOR_CODES = "0123456789abcdefklmnor";
+    private static final int MIN_TERM_LENGTH = 3;
+
+    private TextAnalyzer() {
+    }
+
+    static Analysis analyze(String text) {
+        String source = text == null ? "" : text;
+        char[] lower = new char[source.length()];
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= lower.length; i++) {
+            char c = ' ';
+            if (i < lower.length) {
+                c = Character.toLowerCase(source.charAt(i));
+                if ((c == '&' || c == '\u00A7') && i + 1 < lower.length
+                        && COLOR_CODES.indexOf(Character.toLowerCase(source.charAt(i + 1))) >= 0) {
+                    lower[i] = ' ';
+                    lower[++i] = ' ';
+                    c = ' ';
+                } else {
+                    lower[i] = c;
+                }
+            }
+            boolean word = i < lower.length && Character.isLetterOrDigit(c);
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count] = start;
+                ends[count] = i;
+                count++;
+                start = -1;
+            }
+        }
+        String lowered = new String(lower);
+        String[] words = new String[count];
+        String[] stems = new String[count];
+        for (int w = 0; w < count; w++) {
+            words[w] = lowered.substring(starts[w], ends[w]);
+            stems[w] = stem(words[w]);
+        }
+        return new Analysis(source, lowered, words, stems, Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    // Stemmed tokens of a text in order, stop words included so positions stay meaningful
+    static List<String> stems(String text) {
+        return Arrays.asList(analyze(text).stems);
+    }
+
+    // Light English suffix stripping (plurals, -ed, -ing, silent e) so "claims", "claimed" and
+    // "claiming" all meet at "claim". Not a full Porter stemmer; stems are only compared to stems.
+    static String stem(String word) {
+        int n = word.length();
+        if (n <= 3 || !Character.isLetter(word.charAt(n - 1))) return word;
+        String s = word;
+        if (s.endsWith("ies") && n > 4) {
+            s = s.substring(0, n - 3) + "y";
+        } else if (s.endsWith("es") && n > 4 && (s.endsWith("ches") || s.endsWith("shes") || s.endsWith("xes") || s.endsWith("sses"))) {
+            s = s.substring(0, n - 2);
+        } else if (s.endsWith("s") && !s.endsWith("ss") && !s.endsWith("us") && !s.endsWith("is")) {
+            s = s.substring(0, n - 1);
+        }
+        n = s.length();
+        if (s.endsWith("ing") && n > 5) {
+            s = undouble(s.substring(0, n - 3));
+        } else if (s.endsWith("ed") && !s.endsWith("eed") && n > 4) {
+            s = undouble(s.substring(0, n - 2));
+        }
+        n = s.length();
+        if (n > 3 && s.charAt(n - 1) == 'e' && !isVowel(s.charAt(n - 2))) {
+            s = s.substring(0, n - 1);
+        }
+        return s;
+    }
+
+    private static String undouble(String s) {
+        int n = s.length();
+        if (n > 2 && s.charAt(n - 1) == s.charAt(n - 2) && !isVowel(s.charAt(n - 1)) && "lsz".indexOf(s.charAt(n - 1)) < 0) {
+            return s.substring(0, n - 1);
+        }
+        return s;
+    }
+
+    private static boolean isVowel(char c) {
+        return "aeiouy".indexOf(c) >= 0;
+    }
+
+    // One analyzed message. Word offsets point into `lower`, which is the input lowercased with
+    // color codes blanked out and is the same length as the original.
+    static final class Analysis {
+        final String raw;
+        final String lower;
+        final String[] words;
+        final String[] stems;
+        final int[] starts;
+        final int[] ends;
+        private List<String> terms;
+
+        private Analysis(String raw, String lower, String[] words, String[] stems, int[] starts, int[] ends) {
+            this.raw = raw;
+            this.lower = lower;
+            this.words = words;
+            this.stems = stems;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        // Distinct stems of the content words (no stop words, no words under three letters)
+        List<String> terms() {
+            List<String> result = terms;
+            if (result == null) {
+                Set<String> distinct = new LinkedHashSet<>();
+                for (int i = 0; i < words.length; i++) {
+                    if (words[i].length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(words[i])) distinct.add(stems[i]);
+                }
+                result = List.copyOf(distinct);
+                terms = result;
+            }
+            return result;
+        }
+
+        // Surface words without stop words, for reporting
+        List<String> contentWords() {
+            List<String> result = new ArrayList<>(words.length);
+            for (String word : words) {
+                if (word.length() > 1 && !STOP_WORDS.contains(word)) result.add(word);
+            }
+            return result;
+        }
+
+        // True when the words of the phrase appear consecutively, compared stem to stem
+        boolean hasPhrase(String phrase) {
+            String[] wanted = analyze(phrase).stems;
+            if (wanted.length == 0) return false;
+            for (int i = 0; i + wanted.length <= stems.length; i++) {
+                int j = 0;
+                while (j < wanted.length && stems[i + j].equals(wanted[j])) j++;
+                if (j == wanted.length) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Streaming top-K of words and word pairs in questions that fell through to "default".
+// A count-min sketch estimates every term's frequency in fixed memory; only the best
+// MAX_TRACKED candidates are kept by name.
+public class UnansweredTopics {
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 4096;
+    private static final int MAX_TRACKED = 256;
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+    private final int[][] sketch = new int[DEPTH][WIDTH];
+    private final Map<String, Integer> tracked = new HashMap<>();
+    private long messages;
+
+    public synchronized void record(TextAnalyzer.Analysis text) {
+        List<String> tokens = text.contentWords();
+        if (tokens.isEmpty()) return;
+        messages++;
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (seen.add(token)) offer(token);
+            if (i + 1 < tokens.size()) {
+                String pair = token + " " + tokens.get(i + 1);
+                if (seen.add(pair)) offer(pair);
+            }
+        }
+    }
+
+    public synchronized List<Map.Entry<String, Integer>> top(int limit) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(tracked.entrySet());
+        entries.sort((a, b) -> {
+            int cmp = Integer.compare(b.getValue(), a.getValue());
+            return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+        });
+        List<Map.Entry<String, Integer>> result = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            result.add(Map.entry(entries.get(i).getKey(), entries.get(i).getValue()));
+        }
+        return result;
+    }
+
+    public synchronized long getMessages() {
+        return messages;
+    }
+
+    private void offer(String term) {
+        int estimate = Integer.MAX_VALUE;
+        int hash = term.hashCode();
+        for (int d = 0; d < DEPTH; d++) {
+            int[] row = sketch[d];
+            int idx = bucket(hash, SEEDS[d]);
+            if (row[idx] < Integer.MAX_VALUE) row[idx]++;
+            estimate = Math.min(estimate, row[idx]);
+        }
+        if (tracked.containsKey(term) || tracked.size() < MAX_TRACKED) {
+            tracked.put(term, estimate);
+            return;
+        }
+        String weakest = null;
+        int weakestCount = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> e : tracked.entrySet()) {
+            if (e.getValue() < weakestCount) {
+                weakestCount = e.getValue();
+                weakest = e.getKey();
+            }
+        }
+        if (weakest != null && estimate > weakestCount) {
+            tracked.remove(weakest);
+            tracked.put(term, estimate);
+        }
+    }
+
+    private static int bucket(int hash, int seed) {
+        int h = hash * seed;
+        h ^= h >>> 16;
+        h *= 0x7FEB352D;
+        h ^= h >>> 15;
+        return (h & 0x7FFFFFFF) % WIDTH;
+    }
+}
@@ -0,0 +1,188 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+// Write-behind JSON-lines log of questions Fruitbot could not answer. Callers only enqueue;
+// a background thread appends in batches and rolls files over by day and by size.
+public class UnknownMessageJournal {
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final int MAX_QUEUED = 10_000;
+    private static final int BATCH_SIZE = 256;
+    private static final long FLUSH_INTERVAL_MS = 2000L;
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final Logger logger;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>(MAX_QUEUED);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private BufferedWriter writer;
+    private File currentFile;
+    private LocalDate currentDay;
+    private long currentBytes;
+
+    public UnknownMessageJournal(File directory, long maxFileBytes, Logger logger) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.logger = logger;
+        this.writerThread = new Thread(this::runWriter, "Fruitbot-Journal");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public void append(String playerName, UUID playerId, String message) {
+        if (!queue.offer(new Entry(System.currentTimeMillis(), playerName, playerId, message))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void close() {
+        running = false;
+        try {
+            writerThread.join(5000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+            writeBatch(batch);
+            batch.clear();
+        }
+        closeWriter();
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            for (Entry entry : batch) {
+                String line = toJson(entry);
+                int lineBytes = line.getBytes(StandardCharsets.UTF_8).length + 1;
+                rollIfNeeded(entry.atMs, lineBytes);
+                writer.write(line);
+                writer.write('\n');
+                currentBytes += lineBytes;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            logger.warning("Could not write unknown messages: " + e.getMessage());
+            closeWriter();
+        }
+    }
+
+    private void rollIfNeeded(long atMs, int lineBytes) throws IOException {
+        LocalDate day = Instant.ofEpochMilli(atMs).atZone(ZoneId.systemDefault()).toLocalDate();
+        if (writer != null && day.equals(currentDay) && currentBytes + lineBytes < maxFileBytes) {
+            return;
+        }
+        closeWriter();
+        if (!directory.exists()) directory.mkdirs();
+        File file = new File(directory, "unknown_messages-" + day + ".jsonl");
+        if (file.exists() && file.length() + lineBytes >= maxFileBytes) {
+            int part = 1;
+            File rolled;
+            do {
+                rolled = new File(directory, "unknown_messages-" + day + "." + part + ".jsonl");
+                part++;
+            } while (rolled.exists());
+            if (!file.renameTo(rolled)) {
+                logger.warning("Could not rotate " + file.getName());
+            }
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        currentFile = file;
+        currentDay = day;
+        currentBytes = file.length();
+    }
+
+    private void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warning("Could not close " + currentFile.getName() + ": " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    private static String toJson(Entry entry) {
+        StringBuilder sb = new StringBuilder(96 + entry.message.length());
+        sb.append("{\"timestamp\":");
+        appendString(sb, STAMP.format(Instant.ofEpochMilli(entry.atMs)));
+        sb.append(",\"player\":");
+        appendString(sb, entry.playerName);
+        sb.append(",\"uuid\":");
+        appendString(sb, entry.playerId.toString());
+        sb.append(",\"message\":");
+        appendString(sb, entry.message);
+        return sb.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static class Entry {
+        final long atMs;
+        final String playerName;
+        final UUID playerId;
+        final String message;
+
+        Entry(long atMs, String playerName, UUID playerId, String message) {
+            this.atMs = atMs;
+            this.playerName = playerName;
+            this.playerId = playerId;
+            this.message = message;
+        }
+    }
+}
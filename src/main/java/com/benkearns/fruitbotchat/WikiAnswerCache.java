@@ -0,0 +1,89 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Size-bounded LRU of wiki answers keyed by the normalized question, so "how do I vote?" and
+// "how do i vote" share an entry. Questions with no answer are cached too, but only briefly.
+// Entries remember which corpus build answered them and are ignored once it is replaced.
+final class WikiAnswerCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Map<String, Entry> entries;
+
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long evictions;
+
+    WikiAnswerCache(int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    // Sorted content terms of the question, or "" when nothing is left to key on
+    static String key(List<String> terms) {
+        List<String> sorted = new ArrayList<>(terms);
+        Collections.sort(sorted);
+        return String.join(" ", sorted);
+    }
+
+    // The cached entry, whose answer is null for a cached miss; null when nothing usable is cached
+    synchronized Entry get(String key, long corpusBuiltAt) {
+        Entry entry = entries.get(key);
+        if (entry != null && (entry.expiresAt <= System.currentTimeMillis() || entry.corpusBuiltAt != corpusBuiltAt)) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+        } else if (entry.answer == null) {
+            negativeHits++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    synchronized void put(String key, String answer, long corpusBuiltAt) {
+        long ttl = answer == null ? negativeTtlMillis : ttlMillis;
+        entries.put(key, new Entry(answer, System.currentTimeMillis() + ttl, corpusBuiltAt));
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized String describe() {
+        long lookups = hits + negativeHits + misses;
+        return entries.size() + "/" + maxEntries + " entries, hits " + hits + ", negative hits " + negativeHits
+            + ", misses " + misses + ", evictions " + evictions
+            + (lookups == 0 ? "" : " (" + (hits + negativeHits) * 100 / lookups + "% hit rate)");
+    }
+
+    static final class Entry {
+        final String answer;
+        final long expiresAt;
+        final long corpusBuiltAt;
+
+        Entry(String answer, long expiresAt, long corpusBuiltAt) {
+            this.answer = answer;
+            this.expiresAt = expiresAt;
+            this.corpusBuiltAt = corpusBuiltAt;
+        }
+    }
+}
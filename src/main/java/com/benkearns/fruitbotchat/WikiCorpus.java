@@ -0,0 +1,264 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+
+// One complete, immutable build of the wiki: the crawled pages, each with its own section
+// index and sentences, plus the corpus-wide document frequencies BM25 needs. A rebuild reuses
+// the PageIndex of every page whose body hash is unchanged and patches the frequencies for the
+// rest, so a refresh where few pages changed re-parses only those. WikiService swaps whole
+// corpora, so readers never see a half-built one. Page text lives once, as UTF-8 bytes on the
+// WikiPage; indexes refer to it by offset and to terms by TermDictionary id. For every term the
+// corpus also lists the pages holding it, with the term's slot in each page's SectionIndex; like
+// df this is patched per changed page, and a query scores only the pages on those lists.
+final class WikiCorpus {
+    final Map<String, WikiPage> pages;
+    final List<PageIndex> indexes;
+    final long builtAt;
+    final int reused;
+    final int reindexed;
+    final int dropped;
+    final TermDictionary dictionary;
+    private final int[] df;
+    // Pages are listed by SectionIndex, which stays the same object across withPage
+    private final SectionIndex[][] pagesByTerm;
+    private final int[][] slotsByTerm;
+    private final Map<SectionIndex, Integer> positions = new IdentityHashMap<>();
+    private final int sectionCount;
+    private final double averageSectionLength;
+
+    private WikiCorpus(Map<String, WikiPage> pages, List<PageIndex> indexes, TermDictionary dictionary, int[] df,
+                       SectionIndex[][] pagesByTerm, int[][] slotsByTerm, long builtAt, int reused, int reindexed, int dropped) {
+        this.pages = pages;
+        this.indexes = indexes;
+        this.dictionary = dictionary;
+        this.df = df;
+        this.pagesByTerm = pagesByTerm;
+        this.slotsByTerm = slotsByTerm;
+        this.builtAt = builtAt;
+        this.reused = reused;
+        this.reindexed = reindexed;
+        this.dropped = dropped;
+        int sections = 0;
+        long length = 0;
+        for (PageIndex index : indexes) {
+            positions.put(index.sections, positions.size());
+            sections += index.sections.size();
+            length += index.sections.totalLength;
+        }
+        this.sectionCount = sections;
+        this.averageSectionLength = sections == 0 ? 1.0 : Math.max(1.0, (double) length / sections);
+    }
+
+    // Builds on `previous` when given: unchanged pages keep their index and only the changed,
+    // added and removed pages touch the document frequencies
+    static WikiCorpus build(Map<String, WikiPage> pages, WikiCorpus previous, long builtAt) {
+        Map<String, PageIndex> known = new HashMap<>();
+        TermDictionary dictionary = previous == null ? new TermDictionary() : previous.dictionary;
+        if (previous != null) {
+            for (PageIndex index : previous.indexes) known.put(index.page.url, index);
+        }
+
+        List<PageIndex> indexes = new ArrayList<>(pages.size());
+        List<PageIndex> added = new ArrayList<>();
+        List<PageIndex> removed = new ArrayList<>();
+        for (WikiPage page : pages.values()) {
+            PageIndex old = known.remove(page.url);
+            if (old != null && old.page.contentHash == page.contentHash) {
+                indexes.add(old.withPage(page));
+                continue;
+            }
+            if (old != null) removed.add(old);
+            PageIndex index = PageIndex.build(page, dictionary);
+            added.add(index);
+            indexes.add(index);
+        }
+        removed.addAll(known.values());
+
+        // New pages may have grown the dictionary, so size df only once they are all built
+        int[] df = previous == null ? new int[dictionary.size()] : Arrays.copyOf(previous.df, dictionary.size());
+        for (PageIndex index : removed) index.sections.applyTo(df, -1);
+        for (PageIndex index : added) index.sections.applyTo(df, 1);
+
+        SectionIndex[][] pagesByTerm = previous == null
+            ? new SectionIndex[dictionary.size()][] : Arrays.copyOf(previous.pagesByTerm, dictionary.size());
+        int[][] slotsByTerm = previous == null ? new int[dictionary.size()][] : Arrays.copyOf(previous.slotsByTerm, dictionary.size());
+        patchPostings(pagesByTerm, slotsByTerm, removed, added);
+
+        return new WikiCorpus(Collections.unmodifiableMap(new LinkedHashMap<>(pages)), Collections.unmodifiableList(indexes),
+            dictionary, df, pagesByTerm, slotsByTerm, builtAt, indexes.size() - added.size(), added.size(), known.size());
+    }
+
+    // Rewrites the page lists of the terms a removed or added page contains; all other lists are
+    // shared with the previous corpus
+    private static void patchPostings(SectionIndex[][] pagesByTerm, int[][] slotsByTerm, List<PageIndex> removed,
+                                      List<PageIndex> added) {
+        Set<SectionIndex> gone = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Integer, int[]> fill = new HashMap<>();
+        for (PageIndex index : removed) {
+            gone.add(index.sections);
+            for (int term : index.sections.terms) fill.computeIfAbsent(term, t -> new int[1]);
+        }
+        for (PageIndex index : added) {
+            for (int term : index.sections.terms) fill.computeIfAbsent(term, t -> new int[1])[0]++;
+        }
+        // Keep the surviving entries and leave room for the additions; fill then holds the next free index
+        for (Map.Entry<Integer, int[]> e : fill.entrySet()) {
+            int term = e.getKey();
+            SectionIndex[] oldPages = pagesByTerm[term] == null ? new SectionIndex[0] : pagesByTerm[term];
+            int[] oldSlots = slotsByTerm[term] == null ? new int[0] : slotsByTerm[term];
+            int kept = 0;
+            for (SectionIndex page : oldPages) if (!gone.contains(page)) kept++;
+            SectionIndex[] newPages = new SectionIndex[kept + e.getValue()[0]];
+            int[] newSlots = new int[newPages.length];
+            int n = 0;
+            for (int i = 0; i < oldPages.length; i++) {
+                if (gone.contains(oldPages[i])) continue;
+                newPages[n] = oldPages[i];
+                newSlots[n++] = oldSlots[i];
+            }
+            pagesByTerm[term] = newPages;
+            slotsByTerm[term] = newSlots;
+            e.getValue()[0] = n;
+        }
+        for (PageIndex index : added) {
+            int[] terms = index.sections.terms;
+            for (int slot = 0; slot < terms.length; slot++) {
+                int next = fill.get(terms[slot])[0]++;
+                pagesByTerm[terms[slot]][next] = index.sections;
+                slotsByTerm[terms[slot]][next] = slot;
+            }
+        }
+    }
+
+    // Everything but the pages, in the order restore reads it; page lists refer to pages by position
+    void writeIndex(DataOutputStream out) throws IOException {
+        String[] terms = dictionary.terms();
+        out.writeInt(terms.length);
+        for (String term : terms) WikiSnapshotStore.writeString(out, term);
+        WikiSnapshotStore.writeInts(out, df);
+        for (PageIndex index : indexes) index.writeTo(out);
+        out.writeInt(pagesByTerm.length);
+        for (int term = 0; term < pagesByTerm.length; term++) {
+            SectionIndex[] holders = pagesByTerm[term];
+            int[] holderPositions = null;
+            if (holders != null) {
+                holderPositions = new int[holders.length];
+                for (int i = 0; i < holders.length; i++) holderPositions[i] = positions.get(holders[i]);
+            }
+            WikiSnapshotStore.writeInts(out, holderPositions);
+            WikiSnapshotStore.writeInts(out, slotsByTerm[term]);
+        }
+    }
+
+    // Reads back what writeIndex wrote for a snapshot's pages; nothing is re-tokenized, so the
+    // restored corpus has the saved dictionary ids and scores exactly as the saved one did
+    static WikiCorpus restore(Map<String, WikiPage> pages, ByteBuffer buf, long builtAt) {
+        String[] terms = new String[buf.getInt()];
+        for (int i = 0; i < terms.length; i++) terms[i] = WikiSnapshotStore.readString(buf);
+        TermDictionary dictionary = new TermDictionary(terms);
+        int[] df = WikiSnapshotStore.readInts(buf);
+        List<PageIndex> indexes = new ArrayList<>(pages.size());
+        for (WikiPage page : pages.values()) indexes.add(PageIndex.readFrom(buf, page));
+        SectionIndex[][] pagesByTerm = new SectionIndex[buf.getInt()][];
+        int[][] slotsByTerm = new int[pagesByTerm.length][];
+        for (int term = 0; term < pagesByTerm.length; term++) {
+            int[] holderPositions = WikiSnapshotStore.readInts(buf);
+            slotsByTerm[term] = WikiSnapshotStore.readInts(buf);
+            if (holderPositions == null) continue;
+            pagesByTerm[term] = new SectionIndex[holderPositions.length];
+            for (int i = 0; i < holderPositions.length; i++) pagesByTerm[term][i] = indexes.get(holderPositions[i]).sections;
+        }
+        if (df.length > terms.length || pagesByTerm.length != df.length) throw new IllegalStateException("index does not match dictionary");
+        return new WikiCorpus(Collections.unmodifiableMap(new LinkedHashMap<>(pages)), Collections.unmodifiableList(indexes),
+            dictionary, df, pagesByTerm, slotsByTerm, builtAt, indexes.size(), 0, 0);
+    }
+
+    boolean isEmpty() {
+        return pages.isEmpty();
+    }
+
+    double idf(int term) {
+        int n = term >= 0 && term < df.length ? df[term] : 0;
+        return Math.log(1.0 + (sectionCount - n + 0.5) / (n + 0.5));
+    }
+
+    double averageSectionLength() {
+        return averageSectionLength;
+    }
+
+    // Whether any current page contains the stem; the dictionary also holds terms of dropped pages
+    boolean contains(String stem) {
+        int id = dictionary.id(stem);
+        return id >= 0 && id < df.length && df[id] > 0;
+    }
+
+    int[] termIds(List<String> terms) {
+        return dictionary.lookup(terms);
+    }
+
+    // Best-scoring section across the pages holding a query term; ties go to the earlier page.
+    // Gives up once the System.nanoTime() deadline has passed.
+    Match bestSection(int[] query, long deadline) throws TimeoutException {
+        Match best = null;
+        for (Map.Entry<Integer, int[]> candidate : candidates(query, 1).entrySet()) {
+            if (System.nanoTime() - deadline > 0) throw new TimeoutException();
+            PageIndex index = indexes.get(candidate.getKey());
+            SectionIndex.Hit hit = index.sections.best(query, candidate.getValue(), this);
+            if (hit != null && (best == null || hit.score > best.hit.score)) best = new Match(index, hit);
+        }
+        return best;
+    }
+
+    // Pages holding at least `need` of the query terms, in corpus order
+    List<PageIndex> pagesWith(int[] query, int need) {
+        List<PageIndex> found = new ArrayList<>();
+        for (int position : candidates(query, need).keySet()) found.add(indexes.get(position));
+        return found;
+    }
+
+    // Page position -> slot of each query term in that page (-1 where absent), for the pages
+    // holding at least `need` of them; built from the query terms' page lists alone
+    private TreeMap<Integer, int[]> candidates(int[] query, int need) {
+        TreeMap<Integer, int[]> slots = new TreeMap<>();
+        for (int q = 0; q < query.length; q++) {
+            int term = query[q];
+            if (term < 0 || term >= pagesByTerm.length || pagesByTerm[term] == null) continue;
+            SectionIndex[] holders = pagesByTerm[term];
+            for (int i = 0; i < holders.length; i++) {
+                int position = positions.get(holders[i]);
+                int[] pageSlots = slots.get(position);
+                if (pageSlots == null) {
+                    pageSlots = new int[query.length];
+                    Arrays.fill(pageSlots, -1);
+                    slots.put(position, pageSlots);
+                }
+                pageSlots[q] = slotsByTerm[term][i];
+            }
+        }
+        if (need > 1) slots.values().removeIf(pageSlots -> Arrays.stream(pageSlots).filter(slot -> slot >= 0).count() < need);
+        return slots;
+    }
+
+    static final class Match {
+        final PageIndex index;
+        final SectionIndex.Hit hit;
+
+        Match(PageIndex index, SectionIndex.Hit hit) {
+            this.index = index;
+            this.hit = hit;
+        }
+    }
+}
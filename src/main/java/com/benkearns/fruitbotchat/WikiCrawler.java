@@ -0,0 +1,305 @@
+package com.benkearns.fruitbotchat;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Breadth-first crawl of the wiki, one depth level at a time, with up to `concurrency` requests
+// in flight on OkHttp's async dispatcher. Pages from the previous corpus are revalidated with
+// If-None-Match / If-Modified-Since, so unchanged pages come back as a cheap 304. Bodies are
+// streamed straight through HtmlTextExtractor, hashed and size-capped on the way in. A known
+// page whose fetch fails for any reason but 404/410 is carried forward with its links, so one
+// bad request never drops it, or the pages only it links to, from the corpus; a crawl that runs
+// out of time likewise keeps every known page it did not get to.
+final class WikiCrawler implements CorpusSource {
+    private static final int MIN_PAGE_TEXT = 100;
+
+    private final OkHttpClient client;
+    private final Settings settings;
+    private final Logger logger;
+    private final CircuitBreaker breaker;
+    private volatile Stats lastStats;
+
+    WikiCrawler(OkHttpClient client, Settings settings, Logger logger) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(settings.concurrency);
+        dispatcher.setMaxRequestsPerHost(settings.concurrency);
+        this.client = client.newBuilder().dispatcher(dispatcher).build();
+        this.settings = settings;
+        this.logger = logger;
+        this.breaker = new CircuitBreaker(settings.breakerFailures, settings.breakerOpenMillis);
+    }
+
+    // Pages keyed by URL in crawl order; previous pages are reused when the server answers 304
+    @Override
+    public Map<String, WikiPage> load(Map<String, WikiPage> previous) throws InterruptedException {
+        Stats stats = new Stats();
+        long deadline = System.currentTimeMillis() + settings.maxCrawlMillis;
+        Map<String, WikiPage> pages = new LinkedHashMap<>();
+        Set<String> gone = ConcurrentHashMap.newKeySet();
+        Set<String> seen = new HashSet<>();
+        List<String> frontier = new ArrayList<>();
+        frontier.add(settings.baseUrl);
+        seen.add(settings.baseUrl);
+
+        for (int depth = 0; depth <= settings.maxDepth && !frontier.isEmpty(); depth++) {
+            Map<String, WikiPage> fetched = fetchLevel(frontier, previous, deadline, stats, gone);
+            List<String> next = new ArrayList<>();
+            for (String url : frontier) {
+                WikiPage page = fetched.get(url);
+                if (page == null) continue;
+                if (page.text.length > MIN_PAGE_TEXT) pages.put(url, page);
+                if (depth == settings.maxDepth) continue;
+                for (String link : page.links) {
+                    if (seen.size() >= settings.maxPages) break;
+                    if (seen.add(link)) next.add(link);
+                }
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                stats.timedOut = true;
+                break;
+            }
+            frontier = next;
+        }
+        if (stats.timedOut) {
+            // Pages the crawl never reached are not known to be gone; keep them until a full crawl
+            for (WikiPage known : previous.values()) {
+                if (!pages.containsKey(known.url) && !gone.contains(known.url)) {
+                    pages.put(known.url, known);
+                    stats.carried.incrementAndGet();
+                }
+            }
+        }
+        stats.durationMs = System.currentTimeMillis() - (deadline - settings.maxCrawlMillis);
+        lastStats = stats;
+        logger.info("[Wiki] Crawl finished: " + stats.describe());
+        if (breaker.isOpen()) {
+            // A partial crawl would drop every page that was skipped; keep the current corpus instead
+            logger.warning("[Wiki] Wiki host circuit " + breaker.describe() + "; keeping the current corpus");
+            return new LinkedHashMap<>();
+        }
+        return pages;
+    }
+
+    @Override
+    public String describe() {
+        Stats stats = lastStats;
+        return "last crawl: " + (stats == null ? "none" : stats.describe()) + "; host circuit " + breaker.describe();
+    }
+
+    @Override
+    public void shutdown() {
+        client.dispatcher().cancelAll();
+        client.dispatcher().executorService().shutdown();
+    }
+
+    private Map<String, WikiPage> fetchLevel(List<String> urls, Map<String, WikiPage> previous, long deadline, Stats stats,
+                                             Set<String> gone) throws InterruptedException {
+        Map<String, WikiPage> results = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(urls.size());
+        List<Call> calls = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            WikiPage known = previous.get(url);
+            Request.Builder request = new Request.Builder().url(url);
+            if (known != null && known.etag != null) request.header("If-None-Match", known.etag);
+            if (known != null && known.lastModified != null) request.header("If-Modified-Since", known.lastModified);
+            calls.add(client.newCall(request.build()));
+        }
+        for (int i = 0; i < urls.size(); i++) {
+            String url = urls.get(i);
+            WikiPage known = previous.get(url);
+            long ticket = breaker.allow();
+            if (ticket < 0) {
+                stats.skipped.incrementAndGet();
+                done.countDown();
+                continue;
+            }
+            calls.get(i).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call c, IOException e) {
+                    if (c.isCanceled()) {
+                        stats.skipped.incrementAndGet();
+                    } else {
+                        stats.failed.incrementAndGet();
+                        hostFailed(calls, ticket);
+                        logger.log(Level.FINE, "[Wiki] Fetch failed: " + url, e);
+                    }
+                    done.countDown();
+                }
+
+                @Override
+                public void onResponse(Call c, Response response) {
+                    try (response) {
+                        if (response.code() >= 500 || response.code() == 429) {
+                            hostFailed(calls, ticket);
+                        } else {
+                            breaker.success(ticket);
+                        }
+                        WikiPage page = handle(url, known, response, stats, gone);
+                        if (page != null) results.put(url, page);
+                    } catch (Exception e) {
+                        stats.failed.incrementAndGet();
+                        if (!c.isCanceled()) hostFailed(calls, ticket);
+                        logger.log(Level.FINE, "[Wiki] Could not read " + url, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !done.await(remaining, TimeUnit.MILLISECONDS)) {
+            for (Call call : calls) call.cancel();
+            stats.timedOut = true;
+        }
+        Map<String, WikiPage> level = new HashMap<>(results);
+        for (String url : urls) {
+            WikiPage known = previous.get(url);
+            if (known != null && !level.containsKey(url) && !gone.contains(url)) {
+                level.put(url, known);
+                stats.carried.incrementAndGet();
+            }
+        }
+        return level;
+    }
+
+    // Counts a host failure; once the breaker opens, the rest of the level is cancelled
+    private void hostFailed(List<Call> calls, long ticket) {
+        breaker.failure(ticket);
+        if (breaker.isOpen()) {
+            for (Call call : calls) call.cancel();
+        }
+    }
+
+    private WikiPage handle(String url, WikiPage known, Response response, Stats stats, Set<String> gone) throws IOException {
+        if (response.code() == 304 && known != null) {
+            stats.notModified.incrementAndGet();
+            return known;
+        }
+        if (response.code() == 404 || response.code() == 410) {
+            stats.gone.incrementAndGet();
+            gone.add(url);
+            return null;
+        }
+        if (!response.isSuccessful()) {
+            stats.failed.incrementAndGet();
+            return null;
+        }
+        ResponseBody body = response.body();
+        if (body == null || body.contentLength() > settings.maxPageBytes) {
+            stats.oversized.incrementAndGet();
+            return null;
+        }
+        MediaType type = body.contentType();
+        Charset charset = type == null ? StandardCharsets.UTF_8 : type.charset(StandardCharsets.UTF_8);
+        CappedStream in = new CappedStream(body.byteStream(), settings.maxPageBytes);
+        HtmlTextExtractor.Result extracted;
+        try (Reader reader = new InputStreamReader(in, charset)) {
+            extracted = HtmlTextExtractor.extract(reader, url);
+        }
+        if (in.exceeded) {
+            stats.oversized.incrementAndGet();
+            return null;
+        }
+        stats.fetched.incrementAndGet();
+        stats.bytes.addAndGet(in.count);
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        if (known != null && known.contentHash == in.hash) {
+            // Same body without validators to prove it; keep the indexed version
+            stats.unchanged.incrementAndGet();
+            return known.revalidated(etag, lastModified);
+        }
+
+        List<String> links = new ArrayList<>();
+        for (String href : extracted.links) {
+            if (isValidWikiLink(href)) links.add(href);
+        }
+        int version = known == null ? 1 : known.version + 1;
+        return new WikiPage(url, WikiPage.nameFor(settings.baseUrl, url), extracted.text.getBytes(StandardCharsets.UTF_8), etag, lastModified,
+            links, in.hash, version);
+    }
+
+    private boolean isValidWikiLink(String href) {
+        if (href == null || !href.startsWith(settings.baseUrl)) {
+            return false;
+        }
+
+        if (href.contains("#") || href.contains("?") || href.contains("action=")) {
+            return false;
+        }
+
+        return !href.contains("Special:") && !href.contains("File:") && !href.contains("Category:");
+    }
+
+    static final class Settings {
+        final String baseUrl;
+        final int maxPages;
+        final int maxDepth;
+        final int concurrency;
+        final int maxPageBytes;
+        final long maxCrawlMillis;
+        final int breakerFailures;
+        final long breakerOpenMillis;
+
+        Settings(String baseUrl, int maxPages, int maxDepth, int concurrency, int maxPageBytes, long maxCrawlMillis,
+                 int breakerFailures, long breakerOpenMillis) {
+            this.baseUrl = baseUrl;
+            this.maxPages = maxPages;
+            this.maxDepth = maxDepth;
+            this.concurrency = concurrency;
+            this.maxPageBytes = maxPageBytes;
+            this.maxCrawlMillis = maxCrawlMillis;
+            this.breakerFailures = breakerFailures;
+            this.breakerOpenMillis = breakerOpenMillis;
+        }
+    }
+
+    static final class Stats {
+        final AtomicInteger fetched = new AtomicInteger();
+        final AtomicInteger notModified = new AtomicInteger();
+        final AtomicInteger unchanged = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger oversized = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger gone = new AtomicInteger();
+        final AtomicInteger carried = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        volatile boolean timedOut;
+        volatile long durationMs;
+
+        String describe() {
+            return "fetched " + fetched.get() + " (" + unchanged.get() + " unchanged), not modified " + notModified.get()
+                + ", failed " + failed.get() + ", oversized " + oversized.get() + ", skipped " + skipped.get()
+                + ", gone " + gone.get() + ", carried forward " + carried.get()
+                + ", " + bytes.get() / 1024 + " KB in " + durationMs + "ms"
+                + (timedOut ? " (time limit hit)" : "");
+        }
+    }
+}
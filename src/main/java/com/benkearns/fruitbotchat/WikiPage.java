@@ -0,0 +1,65 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.List;
+
+// One crawled wiki page. The validators and outgoing links are kept so the next crawl can
+// revalidate it with a conditional GET and still follow its links when it comes back 304.
+// contentHash covers the raw body; version goes up each time that hash changes. The extracted
+// text is kept as UTF-8 bytes, the one copy the corpus indexes point into.
+final class WikiPage {
+    final String url;
+    final String name;
+    final byte[] text;
+    final String etag;
+    final String lastModified;
+    final List<String> links;
+    final long contentHash;
+    final int version;
+
+    WikiPage(String url, String name, byte[] text, String etag, String lastModified, List<String> links,
+             long contentHash, int version) {
+        this.url = url;
+        this.name = name;
+        this.text = text;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.links = List.copyOf(links);
+        this.contentHash = contentHash;
+        this.version = version;
+    }
+
+    // The same page under fresh validators, for a 200 whose body hashed the same as before
+    WikiPage revalidated(String etag, String lastModified) {
+        return new WikiPage(url, name, text, etag, lastModified, links, contentHash, version);
+    }
+
+    // Display name from the last path segment; the wiki root is "Home"
+    static String nameFor(String baseUrl, String url) {
+        if (url.equals(baseUrl)) {
+            return "Home";
+        }
+
+        String[] parts = url.split("/");
+        if (parts.length > 0) {
+            String lastPart = parts[parts.length - 1];
+            return lastPart.replace("_", " ").replace("%20", " ");
+        }
+        return "Unknown";
+    }
+
+    static final long HASH_SEED = 0xcbf29ce484222325L;
+
+    // 64-bit FNV-1a
+    static long hash(byte[] bytes) {
+        return hash(HASH_SEED, bytes, 0, bytes.length);
+    }
+
+    // Continues a hash over more bytes, for bodies that are hashed as they stream in
+    static long hash(long h, byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            h ^= bytes[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -1,352 +1,293 @@
 package com.benkearns.fruitbotchat;
 
-import okhttp3.*;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import okhttp3.OkHttpClient;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class WikiService {
-    private static final String WIKI_BASE_URL = "https://fruitservers.net/wiki";
-    
     private final OkHttpClient client;
-    private final Map<String, CachedResponse> cache = new HashMap<>();
-    private static final long CACHE_DURATION = TimeUnit.HOURS.toMillis(1);
-    private String wikiContent = null;
-    private long lastWikiLoad = 0;
-    private final Map<String, String> wikiSections = new HashMap<>();
-    private final Map<String, String> allPages = new HashMap<>();
-    private final Set<String> crawledUrls = new HashSet<>();
+    private final CorpusSource source;
+    private final Logger logger;
+    private final WikiSnapshotStore snapshots;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(FruitbotChat.namedThreadFactory("Fruitbot-Wiki"));
+    private final long refreshIntervalMillis;
+    private final long retryIntervalMillis;
+    private final WikiAnswerCache cache;
+    private volatile WikiCorpus corpus;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> lookups = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Boolean>> refreshing = new AtomicReference<>();
+    private final AtomicLong coalescedLookups = new AtomicLong();
+    private final AtomicLong coalescedRefreshes = new AtomicLong();
+    private final long answerBudgetNanos;
+    private final LatencyRecorder answerLatency = new LatencyRecorder();
+    private final AtomicLong overBudget = new AtomicLong();
     
-    public WikiService() {
+    public WikiService(File dataFolder, Logger logger, BotConfig cfg) {
         this.client = new OkHttpClient.Builder()
             .connectTimeout(5, TimeUnit.SECONDS)
             .readTimeout(10, TimeUnit.SECONDS)
             .build();
+        this.logger = logger;
+        this.source = createSource(dataFolder, cfg);
+        this.snapshots = new WikiSnapshotStore(new File(dataFolder, "wiki-index.bin"));
+        this.cache = new WikiAnswerCache(cfg.wikiCacheMaxEntries, cfg.wikiCacheTtlMillis, cfg.wikiCacheNegativeTtlMillis);
+        this.refreshIntervalMillis = cfg.wikiRefreshMillis;
+        this.retryIntervalMillis = cfg.wikiRetryMillis;
+        this.answerBudgetNanos = cfg.wikiAnswerBudgetNanos;
+        // The snapshot holds the finished index, so loading it is file I/O and array copies; that
+        // still runs on the Fruitbot-Wiki thread rather than in onEnable, and until it is published
+        // lookups simply find no corpus
+        refresher.execute(() -> {
+            loadSnapshot();
+            WikiCorpus loaded = corpus;
+            long age = loaded == null ? refreshIntervalMillis : System.currentTimeMillis() - loaded.builtAt;
+            scheduleRefresh(Math.max(0, refreshIntervalMillis - age));
+        });
+    }
+    
+    private CorpusSource createSource(File dataFolder, BotConfig cfg) {
+        WikiCrawler.Settings settings = cfg.wikiCrawl;
+        switch (cfg.wikiSource) {
+            case "xml-dump":
+                return new MediaWikiDumpSource(new File(dataFolder, cfg.wikiXmlDump), settings.baseUrl, cfg.wikiLocalThreads, logger);
+            case "html-dir":
+                return new HtmlDirectorySource(new File(dataFolder, cfg.wikiHtmlDir), settings.baseUrl, settings.maxPageBytes,
+                    cfg.wikiLocalThreads, logger);
+            default:
+                return new WikiCrawler(client, settings, logger);
+        }
     }
     
-    public String searchAndSummarize(String query) {
+    // Wiki answer for a message, or null when there is none or it cannot be found within the
+    // answer budget; either way the caller falls back to the default reply
+    public String searchAndSummarize(TextAnalyzer.Analysis query) {
+        long start = System.nanoTime();
         try {
-            CachedResponse cached = cache.get(query.toLowerCase());
-            if (cached != null && System.currentTimeMillis() - cached.timestamp < CACHE_DURATION) {
-                return cached.response;
-            }
-            
-            loadWikiContent();
-            if (wikiContent == null) {
-                return null;
-            }
-            
-            String summary = findRelevantContent(query);
-            if (summary != null && !summary.trim().isEmpty()) {
-                cache.put(query.toLowerCase(), new CachedResponse(summary, System.currentTimeMillis()));
-                return summary;
-            }
-            
-            return null;
-        } catch (Exception e) {
+            return lookup(query, start + answerBudgetNanos);
+        } catch (TimeoutException e) {
+            overBudget.incrementAndGet();
             return null;
+        } finally {
+            answerLatency.record(System.nanoTime() - start);
         }
     }
     
-    private void loadWikiContent() throws IOException {
-        if (wikiContent != null && System.currentTimeMillis() - lastWikiLoad < CACHE_DURATION) {
-            return;
-        }
-        
-        crawledUrls.clear();
-        allPages.clear();
-        
-        crawlWikiPages(WIKI_BASE_URL, 0);
-        
-        StringBuilder allContent = new StringBuilder();
-        for (Map.Entry<String, String> page : allPages.entrySet()) {
-            allContent.append("PAGE: ").append(page.getKey()).append("\n");
-            allContent.append(page.getValue()).append("\n\n");
-        }
-        
-        wikiContent = allContent.toString();
-        lastWikiLoad = System.currentTimeMillis();
-        parseWikiSections();
+    // Whether a word occurs anywhere in the wiki, so the fuzzy key matcher leaves it alone
+    public boolean knowsWord(String word) {
+        WikiCorpus current = corpus;
+        return current != null && current.contains(TextAnalyzer.stem(word));
     }
     
-    private void crawlWikiPages(String url, int depth) throws IOException {
-        if (depth > 2 || crawledUrls.contains(url) || crawledUrls.size() > 50) {
-            return;
-        }
-        
-        crawledUrls.add(url);
-        
-        Request request = new Request.Builder().url(url).build();
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) return;
-            
-            String html = response.body().string();
-            Document doc = Jsoup.parse(html, url);
-            
-            doc.select("script, style, .navbox, .infobox, .mw-editsection, nav, header, footer").remove();
-            
-            Elements contentElements = doc.select(".mw-parser-output, .content, #content, main");
-            if (contentElements.isEmpty()) {
-                contentElements = doc.select("body");
+    private String lookup(TextAnalyzer.Analysis query, long deadline) throws TimeoutException {
+        try {
+            WikiCorpus current = corpus;
+            if (current == null) {
+                return null;
             }
             
-            StringBuilder pageContent = new StringBuilder();
-            for (Element element : contentElements) {
-                extractTextContent(element, pageContent);
+            List<String> terms = query.terms();
+            String key = WikiAnswerCache.key(terms);
+            if (key.isEmpty()) {
+                return null;
             }
-            
-            String pageName = extractPageName(url);
-            if (pageContent.length() > 100) {
-                allPages.put(pageName, pageContent.toString());
+            WikiAnswerCache.Entry cached = cache.get(key, current.builtAt);
+            if (cached != null) {
+                return cached.answer;
             }
             
-            if (depth < 2) {
-                Elements links = doc.select("a[href]");
-                for (Element link : links) {
-                    String href = link.absUrl("href");
-                    if (isValidWikiLink(href)) {
-                        crawlWikiPages(href, depth + 1);
-                    }
+            // Identical questions asked at the same moment share one search
+            CompletableFuture<String> flight = new CompletableFuture<>();
+            CompletableFuture<String> leader = lookups.putIfAbsent(key, flight);
+            if (leader != null) {
+                coalescedLookups.incrementAndGet();
+                return leader.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            String summary = null;
+            try {
+                summary = findRelevantContent(current, terms, deadline);
+                if (summary != null && summary.trim().isEmpty()) {
+                    summary = null;
                 }
+                cache.put(key, summary, current.builtAt);
+            } finally {
+                lookups.remove(key, flight);
+                flight.complete(summary);
             }
+            return summary;
+        } catch (TimeoutException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
+            return null;
         }
     }
     
-    private String extractPageName(String url) {
-        if (url.equals(WIKI_BASE_URL)) {
-            return "Home";
-        }
-        
-        String[] parts = url.split("/");
-        if (parts.length > 0) {
-            String lastPart = parts[parts.length - 1];
-            return lastPart.replace("_", " ").replace("%20", " ");
+    private void loadSnapshot() {
+        try {
+            long start = System.nanoTime();
+            WikiCorpus loaded = snapshots.load();
+            if (loaded != null && !loaded.isEmpty()) {
+                corpus = loaded;
+                logger.info("[Wiki] Loaded " + loaded.pages.size() + " pages from snapshot in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "[Wiki] Ignoring unreadable snapshot", e);
         }
-        return "Unknown";
     }
     
-    private boolean isValidWikiLink(String href) {
-        if (href == null || !href.startsWith(WIKI_BASE_URL)) {
-            return false;
-        }
-        
-        if (href.contains("#") || href.contains("?") || href.contains("action=")) {
-            return false;
-        }
-        
-        if (href.contains("Special:") || href.contains("File:") || href.contains("Category:")) {
-            return false;
+    // Queries only ever read the published corpus; the next one is built beside it on the
+    // Fruitbot-Wiki thread and swapped in whole, so nobody waits on the network
+    private void scheduleRefresh(long delayMillis) {
+        try {
+            refresher.schedule(() -> refreshAsync().thenAccept(published ->
+                scheduleRefresh(published ? refreshIntervalMillis : retryIntervalMillis)), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
         }
-        
-        return !crawledUrls.contains(href);
     }
     
-    private void extractTextContent(Element element, StringBuilder content) {
-        Elements paragraphs = element.select("p, li, h1, h2, h3, h4, h5, h6, .mw-headline");
-        for (Element p : paragraphs) {
-            String text = p.text().trim();
-            if (text.length() > 10 && !text.startsWith("Edit") && !text.startsWith("From ")) {
-                content.append(text).append("\n");
+    // Starts a crawl unless one is already running, in which case callers share its result
+    public CompletableFuture<Boolean> refreshAsync() {
+        while (true) {
+            CompletableFuture<Boolean> running = refreshing.get();
+            if (running != null) {
+                coalescedRefreshes.incrementAndGet();
+                return running;
             }
-        }
-    }
-    
-    private void parseWikiSections() {
-        if (wikiContent == null) return;
-        
-        wikiSections.clear();
-        String[] lines = wikiContent.split("\n");
-        String currentSection = "general";
-        StringBuilder sectionContent = new StringBuilder();
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
-            
-            if (isHeading(line)) {
-                if (sectionContent.length() > 0) {
-                    wikiSections.put(currentSection.toLowerCase(), sectionContent.toString());
-                }
-                currentSection = line.replaceAll("[^a-zA-Z0-9\\s]", "").trim();
-                sectionContent = new StringBuilder();
-            } else {
-                sectionContent.append(line).append(" ");
+            CompletableFuture<Boolean> flight = new CompletableFuture<>();
+            if (!refreshing.compareAndSet(null, flight)) {
+                continue;
             }
-        }
-        
-        if (sectionContent.length() > 0) {
-            wikiSections.put(currentSection.toLowerCase(), sectionContent.toString());
+            try {
+                refresher.execute(() -> runRefresh(flight));
+            } catch (RejectedExecutionException e) {
+                refreshing.set(null);
+                flight.complete(false);
+            }
+            return flight;
         }
     }
     
-    private boolean isHeading(String line) {
-        return line.length() < 100 && (line.matches(".*[A-Z].*") && !line.contains(".") && !line.contains(","));
+    private void runRefresh(CompletableFuture<Boolean> flight) {
+        boolean published = false;
+        try {
+            published = refresh();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "[Wiki] Refresh failed", e);
+        } finally {
+            refreshing.set(null);
+            flight.complete(published);
+        }
     }
     
-    private String findRelevantContent(String query) {
-        if (wikiContent == null) return null;
-        
-        String queryLower = query.toLowerCase();
-        String[] queryWords = queryLower.split("\\s+");
+    private boolean refresh() throws InterruptedException {
+        WikiCorpus previous = corpus;
+        Map<String, WikiPage> pages = source.load(previous == null ? Collections.emptyMap() : previous.pages);
         
-        String bestMatch = null;
-        int bestScore = 0;
-        
-        for (Map.Entry<String, String> section : wikiSections.entrySet()) {
-            String sectionName = section.getKey();
-            String sectionContent = section.getValue().toLowerCase();
-            
-            int score = 0;
-            
-            if (sectionName.contains(queryLower) || sectionContent.contains(queryLower)) {
-                score += 10;
-            }
-            
-            for (String word : queryWords) {
-                if (word.length() > 2) {
-                    if (sectionName.contains(word)) score += 5;
-                    if (sectionContent.contains(word)) score += 2;
-                }
-            }
-            
-            if (score > bestScore) {
-                bestScore = score;
-                bestMatch = section.getValue();
-            }
+        if (pages.isEmpty()) {
+            return false;
         }
-        
-        if (bestMatch != null && bestScore > 3) {
-            return summarizeContent(bestMatch, query);
+        WikiCorpus built = WikiCorpus.build(pages, previous, System.currentTimeMillis());
+        corpus = built;
+        logger.info("[Wiki] Indexed " + built.pages.size() + " pages: " + built.reindexed + " re-parsed, "
+            + built.reused + " reused, " + built.dropped + " dropped");
+        cache.clear();
+        try {
+            snapshots.save(built);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "[Wiki] Could not write snapshot", e);
         }
-        
-        return searchInFullContent(query);
+        return true;
     }
     
-    private String searchInFullContent(String query) {
-        if (wikiContent == null) return null;
-        
-        String[] sentences = wikiContent.split("[.!?]\\s+");
-        String queryLower = query.toLowerCase();
-        String[] queryWords = queryLower.split("\\s+");
-        
-        List<String> relevantSentences = new ArrayList<>();
-        
-        for (String sentence : sentences) {
-            sentence = sentence.trim();
-            if (sentence.length() < 20 || sentence.length() > 300) continue;
-            
-            String sentenceLower = sentence.toLowerCase();
-            int matches = 0;
-            
-            if (sentenceLower.contains(queryLower)) {
-                matches += 10;
-            } else {
-                for (String word : queryWords) {
-                    if (word.length() > 2 && sentenceLower.contains(word)) {
-                        matches++;
-                    }
-                }
-            }
-            
-            if (matches >= Math.min(2, queryWords.length)) {
-                relevantSentences.add(sentence);
-                if (relevantSentences.size() >= 3) break;
-            }
+    private String findRelevantContent(WikiCorpus corpus, List<String> terms, long deadline) throws TimeoutException {
+        int need = Math.min(2, terms.size());
+        int[] query = corpus.termIds(terms);
+        WikiCorpus.Match match = corpus.bestSection(query, deadline);
+        if (match != null && (match.hit.nameMatched || match.hit.matchedTerms >= need)) {
+            return summarizeSection(match.index.sentences, match.hit.section, query, need);
         }
         
-        if (relevantSentences.isEmpty()) return null;
-        
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < Math.min(2, relevantSentences.size()); i++) {
-            String sentence = relevantSentences.get(i).trim();
-            if (!sentence.endsWith(".") && !sentence.endsWith("!") && !sentence.endsWith("?")) {
-                sentence += ".";
-            }
-            result.append(sentence);
-            if (i < relevantSentences.size() - 1 && i < 1) {
-                result.append(" ");
-            }
-        }
-        
-        return result.toString().trim();
+        return searchInFullContent(corpus, query, need, deadline);
     }
     
-    private String summarizeContent(String content, String query) {
-        if (content == null || content.trim().isEmpty()) return null;
-        
-        String[] sentences = content.split("\\. ");
-        List<String> relevantSentences = new ArrayList<>();
-        String queryLower = query.toLowerCase();
-        
-        for (String sentence : sentences) {
-            sentence = sentence.trim();
-            if (sentence.length() < 20 || sentence.length() > 200) continue;
-            
-            String sentenceLower = sentence.toLowerCase();
-            if (isRelevantSentence(sentenceLower, queryLower)) {
-                relevantSentences.add(sentence);
-                if (relevantSentences.size() >= 2) break;
-            }
+    private String searchInFullContent(WikiCorpus corpus, int[] query, int need, long deadline) throws TimeoutException {
+        StringBuilder summary = new StringBuilder();
+        int remaining = 2;
+        for (PageIndex index : corpus.pagesWith(query, need)) {
+            if (System.nanoTime() - deadline > 0) throw new TimeoutException();
+            List<Integer> relevant = index.sentences.find(query, need, 20, 300, remaining);
+            if (relevant.isEmpty()) continue;
+            if (summary.length() > 0) summary.append(" ");
+            summary.append(join(index.sentences, relevant));
+            remaining -= relevant.size();
+            if (remaining == 0) break;
         }
-        
-        if (relevantSentences.isEmpty() && sentences.length > 0) {
-            String firstSentence = sentences[0].trim();
-            if (firstSentence.length() >= 20 && firstSentence.length() <= 200) {
-                relevantSentences.add(firstSentence);
+        return summary.length() == 0 ? null : summary.toString();
+    }
+    
+    private String summarizeSection(SentenceStore sentences, int section, int[] query, int need) {
+        List<Integer> relevant = sentences.findInSection(section, query, need, 20, 200, 2);
+        if (relevant.isEmpty()) {
+            int first = sentences.firstOf(section);
+            if (first >= 0 && sentences.length(first) >= 20 && sentences.length(first) <= 200) {
+                relevant = List.of(first);
             }
         }
         
-        if (relevantSentences.isEmpty()) return null;
+        if (relevant.isEmpty()) return null;
         
+        String result = join(sentences, relevant);
+        return result.length() > 10 ? result : null;
+    }
+    
+    private String join(SentenceStore sentences, List<Integer> ids) {
         StringBuilder summary = new StringBuilder();
-        for (int i = 0; i < Math.min(2, relevantSentences.size()); i++) {
-            String sentence = relevantSentences.get(i);
-            if (!sentence.endsWith(".") && !sentence.endsWith("!") && !sentence.endsWith("?")) {
-                sentence += ".";
+        for (int id : ids) {
+            String sentence = sentences.text(id);
+            if (summary.length() > 0) {
+                summary.append(" ");
             }
             summary.append(sentence);
-            if (i < relevantSentences.size() - 1 && i < 1) {
-                summary.append(" ");
+            if (!sentence.endsWith(".") && !sentence.endsWith("!") && !sentence.endsWith("?")) {
+                summary.append(".");
             }
         }
-        
-        String result = summary.toString().trim();
-        return result.length() > 10 ? result : null;
+        return summary.toString();
     }
     
-    private boolean isRelevantSentence(String sentence, String query) {
-        if (sentence.contains(query)) return true;
-        
-        String[] queryWords = query.split("\\s+");
-        int matches = 0;
-        for (String word : queryWords) {
-            if (word.length() > 2 && sentence.contains(word)) {
-                matches++;
-            }
-        }
-        
-        return matches >= Math.min(2, queryWords.length);
+    public String describe() {
+        WikiCorpus current = corpus;
+        return (current == null ? "no corpus" : current.pages.size() + " pages, built "
+                + TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - current.builtAt) + "m ago")
+            + "; " + source.describe()
+            + "; cache: " + cache.describe()
+            + "; coalesced lookups " + coalescedLookups.get() + ", refreshes " + coalescedRefreshes.get()
+            + "; answers " + answerLatency.describe() + ", " + overBudget.get() + " over the "
+            + TimeUnit.NANOSECONDS.toMillis(answerBudgetNanos) + "ms budget";
     }
     
     public void shutdown() {
+        refresher.shutdownNow();
+        source.shutdown();
         client.dispatcher().executorService().shutdown();
         client.connectionPool().evictAll();
     }
-    
-    private static class CachedResponse {
-        final String response;
-        final long timestamp;
-        
-        CachedResponse(String response, long timestamp) {
-            this.response = response;
-            this.timestamp = timestamp;
-        }
-    }
 }
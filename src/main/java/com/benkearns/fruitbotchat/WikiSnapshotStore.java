@@ -0,0 +1,138 @@
+package com.benkearns.fruitbotchat;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Binary snapshot of the last wiki corpus (wiki-index.bin) so a restart can answer from disk
+// without crawling first. Layout: magic, version, builtAt, then the pages (with their HTTP
+// validators and links, so the next crawl can revalidate them, and their content hash and
+// version) as length-prefixed UTF-8, then the search index exactly as WikiCorpus holds it: the
+// dictionary, df, each page's flat SectionIndex and SentenceStore arrays and the per-term page
+// lists. Loading copies those arrays straight out of the mapped file and never tokenizes text.
+final class WikiSnapshotStore {
+    private static final int MAGIC = 0x46424B57;
+    private static final int VERSION = 5;
+
+    private final File file;
+
+    WikiSnapshotStore(File file) {
+        this.file = file;
+    }
+
+    WikiCorpus load() throws IOException {
+        if (!file.isFile() || file.length() == 0) return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            long builtAt = buf.getLong();
+            return WikiCorpus.restore(readPages(buf), buf, builtAt);
+        } catch (RuntimeException e) {
+            throw new IOException("corrupt wiki snapshot: " + e, e);
+        }
+    }
+
+    void save(WikiCorpus corpus) throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(corpus.builtAt);
+            writePages(out, corpus.pages);
+            corpus.writeIndex(out);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writePages(DataOutputStream out, Map<String, WikiPage> pages) throws IOException {
+        out.writeInt(pages.size());
+        for (WikiPage page : pages.values()) {
+            writeString(out, page.url);
+            writeString(out, page.name);
+            out.writeInt(page.text.length);
+            out.write(page.text);
+            writeString(out, page.etag);
+            writeString(out, page.lastModified);
+            out.writeInt(page.links.size());
+            for (String link : page.links) writeString(out, link);
+            out.writeLong(page.contentHash);
+            out.writeInt(page.version);
+        }
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Map<String, WikiPage> readPages(ByteBuffer buf) {
+        int size = buf.getInt();
+        Map<String, WikiPage> pages = new LinkedHashMap<>(Math.max(16, size * 2));
+        for (int i = 0; i < size; i++) {
+            String url = readString(buf);
+            String name = readString(buf);
+            byte[] text = new byte[buf.getInt()];
+            buf.get(text);
+            String etag = readString(buf);
+            String lastModified = readString(buf);
+            String[] links = new String[buf.getInt()];
+            for (int l = 0; l < links.length; l++) links[l] = readString(buf);
+            long contentHash = buf.getLong();
+            int version = buf.getInt();
+            pages.put(url, new WikiPage(url, name, text, etag, lastModified, Arrays.asList(links), contentHash, version));
+        }
+        return pages;
+    }
+
+    static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Length-prefixed, -1 for null
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.length);
+        for (int value : values) out.writeInt(value);
+    }
+
+    static int[] readInts(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) return null;
+        if (length > buf.remaining() / Integer.BYTES) throw new BufferUnderflowException();
+        int[] values = new int[length];
+        buf.asIntBuffer().get(values);
+        buf.position(buf.position() + length * Integer.BYTES);
+        return values;
+    }
+}
@@ -0,0 +1,85 @@
+package com.benkearns.fruitbotchat;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Wikitext from a MediaWiki export to the same plain-text layout HtmlTextExtractor produces:
+// one line per paragraph or list item and "#" lines for headings. Templates, tables, comments,
+// references, files and categories are dropped; links and formatting keep only their text.
+final class WikitextConverter {
+    private static final Pattern COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final Pattern REF = Pattern.compile("<ref[^>/]*/>|<ref[^>]*>.*?</ref>", Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+    private static final Pattern HEADING = Pattern.compile("(={1,6})\\s*(.+?)\\s*\\1\\s*");
+    private static final Pattern LIST_MARKER = Pattern.compile("^[*#:;]+\\s*");
+    private static final Pattern MEDIA_LINK = Pattern.compile(
+        "\\[\\[\\s*(?:File|Image|Category|Media)\\s*:(?:[^\\[\\]]|\\[\\[[^\\]]*\\]\\])*\\]\\]", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PIPED_LINK = Pattern.compile("\\[\\[[^\\]|]*\\|([^\\]]*)\\]\\]");
+    private static final Pattern LINK = Pattern.compile("\\[\\[:?([^\\]]*)\\]\\]");
+    private static final Pattern EXTERNAL_LINK = Pattern.compile("\\[(?:https?:)?//[^\\s\\]]+(?:\\s+([^\\]]*))?\\]");
+    private static final Pattern BREAK = Pattern.compile("<br\\s*/?>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TAG = Pattern.compile("</?[a-zA-Z][^>]*>");
+    private static final Pattern MAGIC_WORD = Pattern.compile("__[A-Z]+__");
+    private static final Pattern QUOTES = Pattern.compile("'{2,}");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private WikitextConverter() {
+    }
+
+    static String toText(String wikitext) {
+        String source = stripTemplates(REF.matcher(COMMENT.matcher(wikitext).replaceAll("")).replaceAll(""));
+        StringBuilder out = new StringBuilder(source.length() / 2);
+        int tableDepth = 0;
+        for (String line : source.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("{|")) {
+                tableDepth++;
+                continue;
+            }
+            if (tableDepth > 0) {
+                if (trimmed.startsWith("|}")) tableDepth--;
+                continue;
+            }
+            Matcher heading = HEADING.matcher(trimmed);
+            if (heading.matches()) {
+                String title = inline(heading.group(2));
+                if (!title.isEmpty()) out.append("#".repeat(heading.group(1).length())).append(' ').append(title).append('\n');
+                continue;
+            }
+            String text = inline(LIST_MARKER.matcher(trimmed).replaceFirst(""));
+            if (!text.isEmpty()) out.append(text).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String inline(String text) {
+        String s = MEDIA_LINK.matcher(text).replaceAll("");
+        s = PIPED_LINK.matcher(s).replaceAll("$1");
+        s = LINK.matcher(s).replaceAll("$1");
+        s = EXTERNAL_LINK.matcher(s).replaceAll("$1");
+        s = BREAK.matcher(s).replaceAll(" ");
+        s = TAG.matcher(s).replaceAll("");
+        s = MAGIC_WORD.matcher(s).replaceAll("");
+        s = QUOTES.matcher(s).replaceAll("");
+        s = HtmlTextExtractor.decodeEntities(s);
+        return SPACES.matcher(s).replaceAll(" ").trim();
+    }
+
+    // Removes {{...}} templates and parser functions, nested ones included
+    private static String stripTemplates(String text) {
+        if (!text.contains("{{")) return text;
+        StringBuilder out = new StringBuilder(text.length());
+        int depth = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.startsWith("{{", i)) {
+                depth++;
+                i++;
+            } else if (depth > 0 && text.startsWith("}}", i)) {
+                depth--;
+                i++;
+            } else if (depth == 0) {
+                out.append(text.charAt(i));
+            }
+        }
+        return out.toString();
+    }
+}
@@ -1,5 +1,6 @@
 package com.benkearns.fruitbotchat;
 
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.Location;
@@ -72,6 +73,7 @@ public class XrayTrackerListener implements Listener {
     private static final int VEIN_MIN = 5;
     private static final long VEIN_WINDOW_MS = 12L * 60L * 1000L;
     private static final int MAX_VEINS_TRACK = 30;
+    private static final Component REVIEW_NOTICE_MESSAGE = ChatTemplates.bot("Fruitbot has detected and saved a suspicious mining path for review.");
 
     public XrayTrackerListener(FruitbotChat plugin) {
         this.plugin = plugin;
@@ -189,7 +191,7 @@ public class XrayTrackerListener implements Listener {
                                     if (s.hasPermission("fruitbotchat.admin")) {
                                         any = true;
                                         plugin.addStaffPending(s.getUniqueId());
-                                        s.sendMessage(plugin.color("&6[&cFruitbot &6-> &cMe&6] &fFruitbot has detected and saved a suspicious mining path for review."));
+                                        s.sendMessage(REVIEW_NOTICE_MESSAGE);
                                     }
                                 }
                                 if (!any) {
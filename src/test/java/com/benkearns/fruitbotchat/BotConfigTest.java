@@ -0,0 +1,66 @@
+package com.benkearns.fruitbotchat;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotConfigTest {
+    @Test
+    void readsRateLimitAndWikiSettings() {
+        YamlConfiguration cfg = new YamlConfiguration();
+        cfg.set("rate-limit.reply.player-per-second", 0.25);
+        cfg.set("rate-limit.max-pending", 8);
+        cfg.set("wiki.base-url", "https://wiki.example.org/w/");
+        cfg.set("wiki.source", "XML-Dump");
+        cfg.set("wiki.crawl.max-page-kb", 64);
+        cfg.set("wiki.cache.ttl-minutes", 5);
+        BotConfig config = BotConfig.from(cfg);
+
+        assertEquals(List.of(), config.warnings);
+        assertEquals(0.25, config.replyPlayerPerSecond, 0.0);
+        assertEquals(5, config.replyPlayerBurst);
+        assertEquals(8, config.maxPendingReplies);
+        assertEquals("https://wiki.example.org/w", config.wikiCrawl.baseUrl);
+        assertEquals("xml-dump", config.wikiSource);
+        assertEquals(64 * 1024, config.wikiCrawl.maxPageBytes);
+        assertEquals(TimeUnit.MINUTES.toMillis(5), config.wikiCacheTtlMillis);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), config.wikiAnswerBudgetNanos);
+    }
+
+    @Test
+    void reportsBadValuesAndFallsBack() {
+        YamlConfiguration cfg = new YamlConfiguration();
+        cfg.set("rate-limit.reply.global-burst", "forty");
+        cfg.set("rate-limit.wiki.player-burst", 2.5);
+        cfg.set("rate-limit.max-pending", 0);
+        cfg.set("wiki.source", "ftp");
+        cfg.set("wiki.base-url", "fruitservers.net/wiki");
+        BotConfig config = BotConfig.from(cfg);
+
+        assertEquals(40, config.replyGlobalBurst);
+        assertEquals(2, config.wikiPlayerBurst);
+        assertEquals(1, config.maxPendingReplies);
+        assertEquals("http", config.wikiSource);
+        assertEquals("https://fruitservers.net/wiki", config.wikiCrawl.baseUrl);
+        assertEquals(5, config.warnings.size(), config.warnings.toString());
+        assertTrue(config.warnings.get(0).startsWith("rate-limit.reply.global-burst must be a whole number"), config.warnings.get(0));
+    }
+
+    @Test
+    void reportsKeysNothingReads() {
+        YamlConfiguration cfg = new YamlConfiguration();
+        cfg.set("rate-limit.reply.global-per-secnd", 5);
+        cfg.set("wiki.crawl.max-page", 10);
+        cfg.set("wiki.crawl.max-pages", 10);
+        BotConfig config = BotConfig.from(cfg);
+
+        assertEquals(List.of("Unknown setting rate-limit.reply.global-per-secnd is ignored",
+            "Unknown setting wiki.crawl.max-page is ignored"), config.warnings);
+        assertEquals(10, config.wikiCrawl.maxPages);
+    }
+}
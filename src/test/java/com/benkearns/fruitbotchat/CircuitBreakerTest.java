@@ -0,0 +1,74 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+        long ticket = breaker.allow();
+        breaker.failure(ticket);
+        breaker.success(ticket);
+        breaker.failure(ticket);
+        assertFalse(breaker.isOpen());
+        breaker.failure(ticket);
+        assertTrue(breaker.isOpen());
+        assertEquals(-1, breaker.allow());
+    }
+
+    @Test
+    void lateSuccessDoesNotCloseAnOpenCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 60_000);
+        long ticket = breaker.allow();
+        long late = breaker.allow();
+        breaker.failure(ticket);
+        breaker.success(late);
+        assertTrue(breaker.isOpen());
+        assertEquals(-1, breaker.allow());
+    }
+
+    @Test
+    void onlyTheProbeDecides() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 20);
+        long before = breaker.allow();
+        long late = breaker.allow();
+        breaker.failure(before);
+        Thread.sleep(40);
+        long probe = breaker.allow();
+        assertTrue(probe >= 0);
+        assertEquals(-1, breaker.allow());
+
+        // Calls sent before the trip report back while the probe is out
+        breaker.success(late);
+        assertTrue(breaker.isOpen());
+        breaker.failure(late);
+        assertTrue(breaker.describe().startsWith("probing (tripped 1x)"), breaker.describe());
+
+        breaker.failure(probe);
+        assertTrue(breaker.describe().startsWith("open"), breaker.describe());
+        Thread.sleep(40);
+        probe = breaker.allow();
+        breaker.success(probe);
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allow() >= 0);
+    }
+
+    @Test
+    void abandonedProbeCannotDecideLater() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 20);
+        breaker.failure(breaker.allow());
+        Thread.sleep(40);
+        long abandoned = breaker.allow();
+        Thread.sleep(40);
+        long probe = breaker.allow();
+        assertTrue(probe >= 0);
+        breaker.success(abandoned);
+        assertTrue(breaker.isOpen());
+        breaker.success(probe);
+        assertFalse(breaker.isOpen());
+    }
+}
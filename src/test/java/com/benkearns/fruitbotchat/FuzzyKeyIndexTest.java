@@ -0,0 +1,73 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FuzzyKeyIndexTest {
+    private static final List<String> KEYS = List.of("info", "shop", "food", "nether", "member", "project", "prison",
+        "discord", "protection", "creative mode");
+
+    private final FuzzyKeyIndex index = FuzzyKeyIndex.build(KEYS, Set.of("into", "show", "good", "poison"));
+
+    @Test
+    void correctsTyposOfKeys() {
+        assertArrayEquals(new int[]{KEYS.indexOf("discord"), 1}, index.lookup("discrod"));
+        assertArrayEquals(new int[]{KEYS.indexOf("protection"), 1}, index.lookup("protecton"));
+        assertArrayEquals(new int[]{KEYS.indexOf("member"), 1}, index.lookup("membr"));
+    }
+
+    @Test
+    void leavesExactKeysAndShortWordsAlone() {
+        assertNull(index.lookup("shop"));
+        assertNull(index.lookup("shp"));
+    }
+
+    @Test
+    void leavesKnownAndStopWordsAlone() {
+        assertNull(index.lookup("into"));
+        assertNull(index.lookup("show"));
+        assertNull(index.lookup("poison"));
+        // "does" is one transposition from "dose" but is a stop word
+        assertNull(FuzzyKeyIndex.build(List.of("dose"), Set.of()).lookup("does"));
+    }
+
+    @Test
+    void allowsOneEditBelowEightCharacters() {
+        assertNotNull(index.lookup("nethr"));
+        assertNull(index.lookup("prajekt"));
+        assertArrayEquals(new int[]{KEYS.indexOf("protection"), 2}, index.lookup("protetcoin"));
+    }
+
+    @Test
+    void skipsWordsTheCallerKnows() {
+        TextAnalyzer.Analysis text = TextAnalyzer.analyze("what does whether do in nethr");
+        assertNull(index.bestMatch(text, word -> true));
+        int[] hit = index.bestMatch(text, "whether"::equals);
+        assertNotNull(hit);
+        assertEquals(KEYS.indexOf("nether"), hit[0]);
+        assertEquals("nethr", text.lower.substring(hit[2], hit[3]));
+    }
+
+    @Test
+    void reportedFalseCorrectionsStayUncorrected() {
+        assertNull(index.bestMatch(TextAnalyzer.analyze("how do i get into creative"), word -> false));
+        assertNull(index.bestMatch(TextAnalyzer.analyze("what does poison do"), word -> false));
+    }
+
+    @Test
+    void distanceCountsAdjacentTranspositionAsOneEdit() {
+        assertEquals(0, FuzzyKeyIndex.distance("shop", "shop", 2));
+        assertEquals(1, FuzzyKeyIndex.distance("shop", "sohp", 2));
+        assertEquals(2, FuzzyKeyIndex.distance("kitten", "sittin", 2));
+        // Optimal string alignment never edits a substring twice
+        assertEquals(3, FuzzyKeyIndex.distance("ca", "abc", 3));
+        assertEquals(3, FuzzyKeyIndex.distance("abcdef", "uvwxyz", 2));
+    }
+}
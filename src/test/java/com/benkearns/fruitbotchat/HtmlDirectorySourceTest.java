@@ -0,0 +1,85 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HtmlDirectorySourceTest {
+    private static final String BASE = "https://wiki.example.org/wiki";
+
+    @TempDir
+    Path dir;
+
+    private HtmlDirectorySource source() {
+        return new HtmlDirectorySource(dir.toFile(), BASE, 4096, 2, Logger.getLogger("HtmlDirectorySourceTest"));
+    }
+
+    private Path write(String relative, String paragraph) throws Exception {
+        Path file = dir.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "<html><body><main><p>" + paragraph + "</p></main></body></html>", StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void mapsFilesToWikiUrls() throws Exception {
+        write("index.html", "The front page of the server wiki.");
+        write("guide/index.html", "The guide section landing page.");
+        write("guide/Land Claims.htm", "Claim land with a golden shovel.");
+        write("Rates 100% [old].html", "A page with an awkward file name.");
+        write("notes.txt", "Not an HTML file at all, so ignored.");
+
+        Map<String, WikiPage> pages = source().load(Map.of());
+        String odd = BASE + "/Rates_100%25_%5Bold%5D";
+        assertEquals(Set.of(BASE, BASE + "/guide", BASE + "/guide/Land_Claims", odd), pages.keySet());
+        assertEquals("Home", pages.get(BASE).name);
+        assertEquals("Land Claims", pages.get(BASE + "/guide/Land_Claims").name);
+        assertEquals("Rates 100% [old]", pages.get(odd).name);
+        assertEquals("Claim land with a golden shovel.\n", new String(pages.get(BASE + "/guide/Land_Claims").text, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void reusesUnchangedFiles() throws Exception {
+        Path same = write("Same.html", "This file is never touched again.");
+        Path touched = write("Touched.html", "This file is saved again unchanged.");
+        Path edited = write("Edited.html", "This file gets a real edit later.");
+        Files.setLastModifiedTime(same, FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(edited, FileTime.fromMillis(1_000_000L));
+        HtmlDirectorySource source = source();
+        Map<String, WikiPage> first = source.load(Map.of());
+
+        Files.setLastModifiedTime(touched, FileTime.fromMillis(2_000_000L));
+        write("Edited.html", "This file now says something else.");
+        Files.setLastModifiedTime(edited, FileTime.fromMillis(2_000_000L));
+        Map<String, WikiPage> second = source.load(first);
+
+        assertSame(first.get(BASE + "/Same"), second.get(BASE + "/Same"));
+        WikiPage revalidated = second.get(BASE + "/Touched");
+        assertFalse(revalidated == first.get(BASE + "/Touched"));
+        assertSame(first.get(BASE + "/Touched").text, revalidated.text);
+        assertEquals(1, revalidated.version);
+        assertEquals("2000000", revalidated.lastModified);
+        assertEquals(2, second.get(BASE + "/Edited").version);
+        assertTrue(source.describe().contains("(1 unchanged)"), source.describe());
+    }
+
+    @Test
+    void skipsOversizedFiles() throws Exception {
+        write("Small.html", "A page well under the size limit.");
+        write("Big.html", "x".repeat(8 * 1024));
+        assertEquals(Set.of(BASE + "/Small"), source().load(Map.of()).keySet());
+    }
+}
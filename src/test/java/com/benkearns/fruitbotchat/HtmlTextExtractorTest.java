@@ -0,0 +1,67 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HtmlTextExtractorTest {
+    private static final String URL = "https://wiki.example.org/wiki/Claims";
+
+    private static HtmlTextExtractor.Result extract(String html) throws IOException {
+        return HtmlTextExtractor.extract(new StringReader(html), URL);
+    }
+
+    @Test
+    void keepsOnlyTheContentContainer() throws IOException {
+        String html = "<html><head><title>Claims</title><style>p { color: red }</style></head><body>"
+            + "<nav><p>Navigation links that should never be indexed</p></nav>"
+            + "<div class=\"mw-parser-output\"><h2>Land <b>claims</b></h2>"
+            + "<p>Use a golden shovel to claim land.<script>var hidden = 'text';</script></p>"
+            + "<table class=\"navbox\"><tr><td><p>Navbox text that is skipped too</p></td></tr></table></div>"
+            + "<footer><p>Footer text with a copyright notice</p></footer></body></html>";
+        assertEquals("## Land claims\nUse a golden shovel to claim land.\n", extract(html).text);
+    }
+
+    @Test
+    void fallsBackToTheWholePageWithoutAContainer() throws IOException {
+        assertEquals("A page with no content container at all.\n",
+            extract("<body><div><p>A page with no content container at all.</p></div></body>").text);
+    }
+
+    @Test
+    void nestedBlocksAndUnclosedTagsSplitLines() throws IOException {
+        String html = "<main><ul><li>First list item text<ul><li>Nested list item text</li></ul></li>"
+            + "<li>Second list item text</ul><p>Paragraph one is here<p>Paragraph two is here</main>";
+        assertEquals("First list item text\nNested list item text\nSecond list item text\n"
+            + "Paragraph one is here\nParagraph two is here\n", extract(html).text);
+    }
+
+    @Test
+    void decodesEntitiesAndDropsShortOrEditBlocks() throws IOException {
+        String html = "<main><p>Fish &amp; chips cost &#36;5&nbsp;each &copy; &bogus; here</p><p>Too short</p>"
+            + "<p>Edit this page on the wiki</p><!-- <p>Commented out paragraph text</p> --></main>";
+        assertEquals("Fish & chips cost $5 each © &bogus; here\n", extract(html).text);
+    }
+
+    @Test
+    void collectsResolvedLinksFromSkippedParts() throws IOException {
+        String html = "<nav><a href=\"/wiki/Ranks\">Ranks</a></nav>"
+            + "<main><p>See <a href='Shop_Guide?a=1&amp;b=2'>the shop guide</a> for details.</p>"
+            + "<a href=\"/wiki/Two Words\">x</a></main>";
+        assertEquals(List.of("https://wiki.example.org/wiki/Ranks", "https://wiki.example.org/wiki/Shop_Guide?a=1&b=2",
+            "https://wiki.example.org/wiki/Two%20Words"), extract(html).links);
+    }
+
+    @Test
+    void readsPagesLargerThanTheBuffer() throws IOException {
+        StringBuilder html = new StringBuilder("<main>");
+        for (int i = 0; i < 2000; i++) html.append("<p>Paragraph number ").append(i).append(" of the page</p>");
+        String text = extract(html.append("</main>").toString()).text;
+        assertEquals(2000, text.split("\n").length);
+        assertEquals("Paragraph number 1999 of the page", text.split("\n")[1999]);
+    }
+}
@@ -0,0 +1,53 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeywordMatcherTest {
+    private static final List<String> KEYS = List.of("shop", "land claim", "claim", "rank", "he", "she", "hers", "1.20");
+
+    private final KeywordMatcher matcher = KeywordMatcher.build(KEYS);
+
+    private static BitSet keys(String... names) {
+        BitSet set = new BitSet();
+        for (String name : names) set.set(KEYS.indexOf(name));
+        return set;
+    }
+
+    @Test
+    void findsEveryKeyInTheText() {
+        assertEquals(keys("shop", "rank"), matcher.matchAll("where is the shop and how do I rank up"));
+        assertEquals(keys("land claim", "claim"), matcher.matchAll("how do i make a land claim?"));
+    }
+
+    @Test
+    void ignoresCase() {
+        assertEquals(keys("shop"), matcher.matchAll("SHOP"));
+    }
+
+    @Test
+    void keysMustNotBeGluedToOtherLetters() {
+        assertTrue(matcher.matchAll("workshop shopping ranked claims").isEmpty());
+        assertEquals(keys("shop"), matcher.matchAll("shop,shopkeeper"));
+        assertEquals(keys("1.20"), matcher.matchAll("does it run on 1.20?"));
+        assertTrue(matcher.matchAll("v1.201").isEmpty());
+    }
+
+    @Test
+    void overlappingKeysFollowFailureLinks() {
+        // "he" ends inside "she" but is glued to the s, so only the longer key counts
+        assertEquals(keys("she"), matcher.matchAll("she"));
+        assertEquals(keys("hers"), matcher.matchAll("ushers hers"));
+        assertEquals(keys("land claim", "claim"), matcher.matchAll("land land claim"));
+    }
+
+    @Test
+    void emptyKeysNeverMatch() {
+        assertTrue(KeywordMatcher.build(List.of("")).matchAll("anything at all").isEmpty());
+    }
+}
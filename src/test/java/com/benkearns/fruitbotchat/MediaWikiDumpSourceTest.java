@@ -0,0 +1,83 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MediaWikiDumpSourceTest {
+    @TempDir
+    Path dir;
+
+    private static String page(String title, int ns, String extra, String... revisions) {
+        StringBuilder xml = new StringBuilder("<page><title>" + title + "</title><ns>" + ns + "</ns><id>1</id>" + extra);
+        for (String revision : revisions) xml.append(revision);
+        return xml.append("</page>\n").toString();
+    }
+
+    private static String revision(String timestamp, String text) {
+        return "<revision><id>1</id><timestamp>" + timestamp + "</timestamp><contributor><username>u</username></contributor>"
+            + "<text xml:space=\"preserve\">" + text + "</text></revision>";
+    }
+
+    private File dump(String... pages) throws Exception {
+        File file = dir.resolve("wiki-dump.xml").toFile();
+        Files.writeString(file.toPath(), "<mediawiki xmlns=\"http://www.mediawiki.org/xml/export-0.10/\">"
+            + "<siteinfo><sitename>Wiki</sitename></siteinfo>\n" + String.join("", pages) + "</mediawiki>");
+        return file;
+    }
+
+    private static String text(WikiPage page) {
+        return new String(page.text, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void keepsArticlesAtTheirLatestRevision() throws Exception {
+        File file = dump(
+            page("Land Claims", 0, "",
+                revision("2023-01-01T00:00:00Z", "Old text about claims."),
+                revision("2024-05-01T00:00:00Z", "'''Claims''' use a [[Golden Shovel|golden shovel]]."),
+                "<revision><id>3</id><timestamp>2024-06-01T00:00:00Z</timestamp><text deleted=\"deleted\"/></revision>"),
+            page("Claims", 0, "<redirect title=\"Land Claims\"/>", revision("2024-01-01T00:00:00Z", "#REDIRECT [[Land Claims]]")),
+            page("Talk:Land Claims", 1, "", revision("2024-01-01T00:00:00Z", "Discussion.")));
+        Map<String, WikiPage> pages = new MediaWikiDumpSource(file, "https://w/wiki", 2, Logger.getLogger("test")).load(Map.of());
+
+        assertEquals(List.of("https://w/wiki/Land_Claims"), List.copyOf(pages.keySet()));
+        WikiPage page = pages.get("https://w/wiki/Land_Claims");
+        assertEquals("Land Claims", page.name);
+        assertEquals("Claims use a golden shovel.\n", text(page));
+        assertEquals("2024-05-01T00:00:00Z", page.lastModified);
+        assertEquals(1, page.version);
+    }
+
+    @Test
+    void reusesUnchangedPagesAndVersionsChangedOnes() throws Exception {
+        MediaWikiDumpSource source = new MediaWikiDumpSource(dump(
+            page("Ranks", 0, "", revision("2024-01-01T00:00:00Z", "VIP gives homes.")),
+            page("Rules", 0, "", revision("2024-01-01T00:00:00Z", "No griefing."))), "https://w/wiki", 2, Logger.getLogger("test"));
+        Map<String, WikiPage> first = source.load(Map.of());
+        dump(page("Ranks", 0, "", revision("2024-01-01T00:00:00Z", "VIP gives homes.")),
+            page("Rules", 0, "", revision("2024-02-01T00:00:00Z", "No griefing or stealing.")));
+        Map<String, WikiPage> second = source.load(first);
+
+        assertSame(first.get("https://w/wiki/Ranks"), second.get("https://w/wiki/Ranks"));
+        assertEquals(2, second.get("https://w/wiki/Rules").version);
+        assertEquals("No griefing or stealing.\n", text(second.get("https://w/wiki/Rules")));
+    }
+
+    @Test
+    void missingDumpLoadsNothing() throws Exception {
+        MediaWikiDumpSource source = new MediaWikiDumpSource(dir.resolve("none.xml").toFile(), "https://w/wiki", 2, Logger.getLogger("test"));
+        assertTrue(source.load(Map.of()).isEmpty());
+    }
+}
@@ -0,0 +1,121 @@
+package com.benkearns.fruitbotchat;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Refill rates are set low enough that no token comes back during a test
+class ReplyLimiterTest {
+    private static ReplyLimiter limiter(int playerBurst, int globalBurst, int maxPending) {
+        YamlConfiguration cfg = new YamlConfiguration();
+        cfg.set("rate-limit.reply.player-per-second", 0.001);
+        cfg.set("rate-limit.reply.player-burst", playerBurst);
+        cfg.set("rate-limit.reply.global-per-second", 0.001);
+        cfg.set("rate-limit.reply.global-burst", globalBurst);
+        cfg.set("rate-limit.wiki.player-per-second", 0.001);
+        cfg.set("rate-limit.wiki.player-burst", playerBurst);
+        cfg.set("rate-limit.wiki.global-per-second", 0.001);
+        cfg.set("rate-limit.wiki.global-burst", globalBurst);
+        cfg.set("rate-limit.max-pending", maxPending);
+        return new ReplyLimiter(BotConfig.from(cfg));
+    }
+
+    @Test
+    void fullQueueRefundsThePlayerToken() {
+        ReplyLimiter limiter = limiter(1, 10, 1);
+        UUID busy = UUID.randomUUID();
+        UUID player = UUID.randomUUID();
+        assertTrue(limiter.tryAdmitReply(busy));
+        assertFalse(limiter.tryAdmitReply(player));
+        limiter.exitPending();
+        assertTrue(limiter.tryAdmitReply(player));
+    }
+
+    @Test
+    void globalRejectionRefundsThePlayerToken() {
+        ReplyLimiter limiter = limiter(1, 1, 10);
+        UUID other = UUID.randomUUID();
+        UUID player = UUID.randomUUID();
+        assertTrue(limiter.tryAcquireWiki(other));
+        assertFalse(limiter.tryAcquireWiki(player));
+        assertTrue(limiter.describe().contains("global 1"), limiter.describe());
+        // The player's own bucket is still full, so the refusal counts against the global limit again
+        assertFalse(limiter.tryAcquireWiki(player));
+        assertTrue(limiter.describe().endsWith("rejected wiki: player 0, global 2"), limiter.describe());
+    }
+
+    @Test
+    void playerBucketLimitsOnlyThatPlayer() {
+        ReplyLimiter limiter = limiter(1, 10, 10);
+        UUID player = UUID.randomUUID();
+        assertTrue(limiter.tryAdmitReply(player));
+        assertFalse(limiter.tryAdmitReply(player));
+        assertTrue(limiter.tryAdmitReply(UUID.randomUUID()));
+    }
+
+    @Test
+    void bucketsOutliveTheSessionUntilRefilled() {
+        ReplyLimiter limiter = limiter(1, 10, 10);
+        UUID player = UUID.randomUUID();
+        assertTrue(limiter.tryAdmitReply(player));
+        limiter.exitPending();
+        // Relogging creates a new PlayerSession, but the bucket is keyed by UUID and still empty
+        limiter.expireRefilled();
+        assertFalse(limiter.tryAdmitReply(player));
+    }
+
+    @Test
+    void concurrentFirstLookupsShareOneBucket() throws Exception {
+        ReplyLimiter limiter = limiter(1, 100, 100);
+        UUID player = UUID.randomUUID();
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (limiter.tryAcquireWiki(player)) admitted.incrementAndGet();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) thread.join();
+        assertEquals(1, admitted.get());
+    }
+
+    @Test
+    void configureAppliesChangedLimits() {
+        ReplyLimiter limiter = limiter(10, 1, 10);
+        assertTrue(limiter.tryAdmitReply(UUID.randomUUID()));
+        assertFalse(limiter.tryAdmitReply(UUID.randomUUID()));
+        YamlConfiguration cfg = new YamlConfiguration();
+        cfg.set("rate-limit.reply.global-burst", 1);
+        cfg.set("rate-limit.reply.global-per-second", 0.001);
+        cfg.set("rate-limit.max-pending", 10);
+        // An unchanged global limit keeps its bucket, so the spent token stays spent
+        limiter.configure(BotConfig.from(cfg));
+        assertFalse(limiter.tryAdmitReply(UUID.randomUUID()));
+        cfg.set("rate-limit.reply.global-burst", 3);
+        limiter.configure(BotConfig.from(cfg));
+        assertTrue(limiter.tryAdmitReply(UUID.randomUUID()));
+        assertTrue(limiter.describe().startsWith("pending 2/10"), limiter.describe());
+        cfg.set("rate-limit.max-pending", 2);
+        limiter.configure(BotConfig.from(cfg));
+        assertFalse(limiter.tryAdmitReply(UUID.randomUUID()));
+        assertTrue(limiter.describe().contains("queue full 1"), limiter.describe());
+    }
+}
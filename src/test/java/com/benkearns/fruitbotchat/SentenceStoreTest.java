@@ -0,0 +1,41 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SentenceStoreTest {
+    private static SentenceStore store(String text, TermDictionary dictionary) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return SentenceStore.build(bytes, List.of(new int[]{0, bytes.length}), dictionary);
+    }
+
+    @Test
+    void splitsSentencesAndFoldsLineBreaks() {
+        SentenceStore sentences = store("First sentence here. Second one\nspans two lines! Third?", new TermDictionary());
+        assertEquals("First sentence here.", sentences.text(0));
+        assertEquals("Second one spans two lines!", sentences.text(1));
+        assertEquals("Third?", sentences.text(2));
+        assertEquals(-1, sentences.firstOf(1));
+    }
+
+    @Test
+    void lengthLimitsCountCharsNotBytes() {
+        TermDictionary dictionary = new TermDictionary();
+        String sentence = "The shop sells crêpes " + "é".repeat(120) + ".";
+        SentenceStore sentences = store(sentence, dictionary);
+        assertEquals(sentence.length(), sentences.length(0));
+        int[] query = {dictionary.id(TextAnalyzer.stem("shop"))};
+        assertEquals(List.of(0), sentences.findInSection(0, query, 1, 20, 200, 2));
+        assertEquals(List.of(0), sentences.find(query, 1, 20, 200, 2));
+    }
+
+    @Test
+    void surrogatePairsCountAsTwoChars() {
+        byte[] text = "aé€🍎".getBytes(StandardCharsets.UTF_8);
+        assertEquals("aé€🍎".length(), SentenceStore.utf16Length(text, 0, text.length));
+    }
+}
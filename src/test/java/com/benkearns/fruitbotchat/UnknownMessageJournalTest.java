@@ -0,0 +1,37 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnknownMessageJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void multibyteMessagesStayWithinTheFileLimit() throws Exception {
+        UnknownMessageJournal journal = new UnknownMessageJournal(dir.toFile(), 900, Logger.getLogger("UnknownMessageJournalTest"));
+        String message = "ж".repeat(100);
+        for (int i = 0; i < 6; i++) journal.append("Steve", UUID.randomUUID(), message);
+        journal.close();
+
+        File[] files = dir.toFile().listFiles();
+        assertNotNull(files);
+        int lines = 0;
+        for (File file : files) {
+            assertTrue(file.length() <= 900, file.getName() + " is " + file.length() + " bytes");
+            lines += Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size();
+        }
+        assertEquals(6, lines);
+    }
+}
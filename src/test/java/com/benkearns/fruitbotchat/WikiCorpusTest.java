@@ -0,0 +1,114 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WikiCorpusTest {
+    private static final long NO_DEADLINE = Long.MAX_VALUE / 2;
+
+    static WikiPage page(String url, String name, String text, int version) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new WikiPage(url, name, bytes, null, null, List.of(), WikiPage.hash(bytes), version);
+    }
+
+    private static Map<String, WikiPage> firstCrawl() {
+        Map<String, WikiPage> pages = new LinkedHashMap<>();
+        pages.put("u1", page("u1", "Home", "# Land Claims\nUse a golden shovel to claim land for yourself. "
+            + "Land claims protect your blocks from griefers.\n# Economy\nEarn money by selling items at the spawn shop.\n", 1));
+        pages.put("u2", page("u2", "Ranks", "VIP rank gives extra homes and a colored name in chat.\n", 1));
+        pages.put("u3", page("u3", "Rules", "No griefing other players or stealing from chests at all.\n", 1));
+        return pages;
+    }
+
+    private static Map<String, WikiPage> secondCrawl(Map<String, WikiPage> first) {
+        Map<String, WikiPage> pages = new LinkedHashMap<>(first);
+        pages.remove("u3");
+        pages.put("u2", page("u2", "Ranks", "MVP rank gives extra claim blocks and land for your town.\n", 2));
+        pages.put("u4", page("u4", "Shops", "Player shops sell items with chest signs near spawn.\n", 1));
+        return pages;
+    }
+
+    @Test
+    void incrementalBuildMatchesFullRebuild() throws TimeoutException {
+        WikiCorpus first = WikiCorpus.build(firstCrawl(), null, 1);
+        Map<String, WikiPage> pages = secondCrawl(firstCrawl());
+        WikiCorpus incremental = WikiCorpus.build(pages, first, 2);
+        WikiCorpus full = WikiCorpus.build(pages, null, 2);
+
+        assertEquals(1, incremental.reused);
+        assertEquals(2, incremental.reindexed);
+        assertEquals(1, incremental.dropped);
+        assertSame(first.indexes.get(0).sections, incremental.indexes.get(0).sections);
+
+        List<String> terms = new ArrayList<>();
+        for (String text : List.of("land claims golden shovel griefers money spawn shop", "vip mvp rank homes town",
+                "griefing chests players", "shops chest signs items")) {
+            terms.addAll(TextAnalyzer.stems(text));
+        }
+        for (String term : terms) {
+            assertEquals(full.idf(full.dictionary.id(term)), incremental.idf(incremental.dictionary.id(term)), 1e-12, term);
+            assertEquals(full.contains(term), incremental.contains(term), term);
+        }
+        assertEquals(full.averageSectionLength(), incremental.averageSectionLength(), 1e-12);
+
+        for (String query : List.of("claim land", "rank", "chest", "griefing", "spawn shop")) {
+            WikiCorpus.Match a = incremental.bestSection(incremental.termIds(TextAnalyzer.stems(query)), NO_DEADLINE);
+            WikiCorpus.Match b = full.bestSection(full.termIds(TextAnalyzer.stems(query)), NO_DEADLINE);
+            assertEquals(b == null ? null : b.index.page.url, a == null ? null : a.index.page.url, query);
+            if (a != null) {
+                assertEquals(b.hit.section, a.hit.section, query);
+                assertEquals(b.hit.score, a.hit.score, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void droppedPagesLeaveTheIndex() throws TimeoutException {
+        WikiCorpus first = WikiCorpus.build(firstCrawl(), null, 1);
+        WikiCorpus second = WikiCorpus.build(secondCrawl(firstCrawl()), first, 2);
+        assertTrue(first.contains(TextAnalyzer.stem("stealing")));
+        assertFalse(second.contains(TextAnalyzer.stem("stealing")));
+        assertNull(second.bestSection(second.termIds(TextAnalyzer.stems("stealing")), NO_DEADLINE));
+        assertEquals(List.of(), second.pagesWith(second.termIds(TextAnalyzer.stems("vip")), 1));
+    }
+
+    @Test
+    void bestSectionPrefersTitleMatches() throws TimeoutException {
+        WikiCorpus corpus = WikiCorpus.build(firstCrawl(), null, 1);
+        WikiCorpus.Match match = corpus.bestSection(corpus.termIds(TextAnalyzer.stems("economy")), NO_DEADLINE);
+        assertNotNull(match);
+        assertEquals("u1", match.index.page.url);
+        assertEquals("economy", match.index.sections.names[match.hit.section]);
+        assertTrue(match.hit.nameMatched);
+    }
+
+    @Test
+    void pagesWithNeedsEnoughDistinctTerms() {
+        WikiCorpus corpus = WikiCorpus.build(secondCrawl(firstCrawl()), null, 1);
+        int[] query = corpus.termIds(TextAnalyzer.stems("land town"));
+        assertEquals(2, corpus.pagesWith(query, 1).size());
+        assertEquals(1, corpus.pagesWith(query, 2).size());
+        assertEquals("u2", corpus.pagesWith(query, 2).get(0).page.url);
+    }
+
+    @Test
+    void expiredDeadlineTimesOut() {
+        WikiCorpus corpus = WikiCorpus.build(firstCrawl(), null, 1);
+        int[] query = corpus.termIds(TextAnalyzer.stems("land"));
+        assertThrows(TimeoutException.class, () -> corpus.bestSection(query, System.nanoTime() - 1));
+    }
+}
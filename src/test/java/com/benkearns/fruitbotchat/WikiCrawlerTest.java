@@ -0,0 +1,130 @@
+package com.benkearns.fruitbotchat;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Crawls a local MockWebServer wiki: a home page linking to pages A and B, each linking to a child
+class WikiCrawlerTest {
+    private static final String FILLER = " has plenty of descriptive text, enough to pass the minimum page length easily.";
+
+    private final MockWebServer server = new MockWebServer();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+    private final Set<String> slow = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger fullBodies = new AtomicInteger();
+    private String base;
+
+    @BeforeEach
+    void start() throws Exception {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (failing.contains(path)) return new MockResponse().setResponseCode(503);
+                if (missing.contains(path)) return new MockResponse().setResponseCode(404);
+                String etag = "\"" + path.hashCode() + "\"";
+                MockResponse response = new MockResponse();
+                if (slow.contains(path)) response.setHeadersDelay(2, TimeUnit.SECONDS);
+                if (etag.equals(request.getHeader("If-None-Match"))) return response.setResponseCode(304);
+                fullBodies.incrementAndGet();
+                return response.setHeader("ETag", etag).setBody(body(path));
+            }
+        });
+        server.start();
+        base = server.url("/wiki").toString();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.shutdown();
+    }
+
+    private static String body(String path) {
+        if (path.equals("/wiki/Big")) return "<html><body><main><p>" + "x".repeat(8 * 1024) + "</p></main></body></html>";
+        String links = path.equals("/wiki")
+            ? "<a href=\"/wiki/A\">a</a><a href=\"/wiki/B\">b</a><a href=\"/wiki/Big\">big</a>"
+            : "<a href=\"" + path + "_child\">child</a>";
+        return "<html><body><main><h1>Page</h1><p>The page at " + path + FILLER + "</p>" + links + "</main></body></html>";
+    }
+
+    private WikiCrawler crawler(long maxCrawlMillis, int breakerFailures) {
+        return new WikiCrawler(new OkHttpClient.Builder().build(),
+            new WikiCrawler.Settings(base, 50, 2, 4, 4 * 1024, maxCrawlMillis, breakerFailures, 60_000),
+            Logger.getLogger("WikiCrawlerTest"));
+    }
+
+    @Test
+    void crawlsLinksAndSkipsOversizedPages() throws Exception {
+        Map<String, WikiPage> pages = crawler(10_000, 5).load(Map.of());
+        assertEquals(Set.of(base, base + "/A", base + "/B", base + "/A_child", base + "/B_child"), pages.keySet());
+        assertEquals("Home", pages.get(base).name);
+        assertEquals("A child", pages.get(base + "/A_child").name);
+    }
+
+    @Test
+    void reusesPagesTheServerReportsNotModified() throws Exception {
+        WikiCrawler crawler = crawler(10_000, 5);
+        Map<String, WikiPage> first = crawler.load(Map.of());
+        int bodies = fullBodies.get();
+        Map<String, WikiPage> second = crawler.load(first);
+        assertEquals(first.keySet(), second.keySet());
+        for (WikiPage page : second.values()) assertSame(first.get(page.url), page);
+        // Only the oversized page, which never made it into the corpus, is sent in full again
+        assertEquals(bodies + 1, fullBodies.get());
+    }
+
+    @Test
+    void carriesFailedPagesForwardButDropsMissingOnes() throws Exception {
+        WikiCrawler crawler = crawler(10_000, 5);
+        Map<String, WikiPage> first = crawler.load(Map.of());
+        failing.add("/wiki/A");
+        missing.add("/wiki/B");
+        Map<String, WikiPage> second = crawler.load(first);
+        assertSame(first.get(base + "/A"), second.get(base + "/A"));
+        assertTrue(second.containsKey(base + "/A_child"));
+        assertFalse(second.containsKey(base + "/B"));
+        assertFalse(second.containsKey(base + "/B_child"));
+    }
+
+    @Test
+    void timedOutCrawlKeepsPagesItDidNotReach() throws Exception {
+        Map<String, WikiPage> first = crawler(10_000, 5).load(Map.of());
+        slow.add("/wiki/A");
+        slow.add("/wiki/B");
+        Map<String, WikiPage> second = crawler(500, 5).load(first);
+        assertEquals(first.keySet(), second.keySet());
+    }
+
+    @Test
+    void openBreakerKeepsTheCurrentCorpus() throws Exception {
+        WikiCrawler crawler = crawler(10_000, 2);
+        Map<String, WikiPage> first = crawler.load(Map.of());
+        failing.add("/wiki");
+        failing.add("/wiki/A");
+        failing.add("/wiki/B");
+        assertTrue(crawler.load(first).isEmpty());
+        assertTrue(crawler.load(first).isEmpty());
+        assertTrue(crawler.describe().contains("circuit open"), crawler.describe());
+        int requests = server.getRequestCount();
+        assertTrue(crawler.load(first).isEmpty());
+        assertEquals(requests, server.getRequestCount());
+    }
+}
@@ -0,0 +1,95 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WikiSnapshotStoreTest {
+    @TempDir
+    Path dir;
+
+    private static WikiCorpus corpus() {
+        Map<String, WikiPage> pages = new LinkedHashMap<>();
+        byte[] home = "# Claims\nUse a golden shovel to claim land. Café signs are fine.\n".getBytes(StandardCharsets.UTF_8);
+        pages.put("https://w/wiki", new WikiPage("https://w/wiki", "Home", home, "\"abc\"", "Tue, 01 Oct 2024 10:00:00 GMT",
+            List.of("https://w/wiki/Ranks"), WikiPage.hash(home), 3));
+        byte[] ranks = "VIP rank gives extra homes.\n".getBytes(StandardCharsets.UTF_8);
+        pages.put("https://w/wiki/Ranks", new WikiPage("https://w/wiki/Ranks", "Ranks", ranks, null, null, List.of(), 42L, 1));
+        return WikiCorpus.build(pages, null, 1234L);
+    }
+
+    @Test
+    void roundTripsPagesAndSearchIndex() throws Exception {
+        WikiSnapshotStore store = new WikiSnapshotStore(dir.resolve("wiki-index.bin").toFile());
+        WikiCorpus saved = corpus();
+        store.save(saved);
+        WikiCorpus loaded = store.load();
+
+        assertEquals(1234L, loaded.builtAt);
+        assertEquals(List.copyOf(saved.pages.keySet()), List.copyOf(loaded.pages.keySet()));
+        for (WikiPage page : saved.pages.values()) {
+            WikiPage copy = loaded.pages.get(page.url);
+            assertEquals(page.name, copy.name);
+            assertArrayEquals(page.text, copy.text);
+            assertEquals(page.etag, copy.etag);
+            assertEquals(page.lastModified, copy.lastModified);
+            assertEquals(page.links, copy.links);
+            assertEquals(page.contentHash, copy.contentHash);
+            assertEquals(page.version, copy.version);
+        }
+        // The index comes back as saved rather than rebuilt: same term ids, and writing it again
+        // gives the same bytes
+        assertArrayEquals(saved.dictionary.terms(), loaded.dictionary.terms());
+        File again = dir.resolve("again.bin").toFile();
+        new WikiSnapshotStore(again).save(loaded);
+        assertArrayEquals(Files.readAllBytes(dir.resolve("wiki-index.bin")), Files.readAllBytes(again.toPath()));
+
+        assertEquals(answer(saved, "golden shovel"), answer(loaded, "golden shovel"));
+        assertEquals("https://w/wiki/Ranks", answer(loaded, "vip rank"));
+        WikiCorpus.Match before = match(saved, "claim land");
+        WikiCorpus.Match after = match(loaded, "claim land");
+        assertEquals(before.hit.score, after.hit.score);
+        assertEquals(before.hit.section, after.hit.section);
+    }
+
+    private static WikiCorpus.Match match(WikiCorpus corpus, String query) throws TimeoutException {
+        return corpus.bestSection(corpus.termIds(TextAnalyzer.stems(query)), Long.MAX_VALUE / 2);
+    }
+
+    private static String answer(WikiCorpus corpus, String query) throws TimeoutException {
+        WikiCorpus.Match match = match(corpus, query);
+        return match == null ? null : match.index.page.url;
+    }
+
+    @Test
+    void missingOrForeignFilesLoadAsNothing() throws Exception {
+        File file = dir.resolve("wiki-index.bin").toFile();
+        assertNull(new WikiSnapshotStore(file).load());
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertNull(new WikiSnapshotStore(file).load());
+    }
+
+    @Test
+    void truncatedSnapshotIsReportedAsCorrupt() throws Exception {
+        File file = dir.resolve("wiki-index.bin").toFile();
+        new WikiSnapshotStore(file).save(corpus());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> new WikiSnapshotStore(file).load());
+    }
+}
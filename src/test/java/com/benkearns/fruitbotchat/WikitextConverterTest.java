@@ -0,0 +1,37 @@
+package com.benkearns.fruitbotchat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WikitextConverterTest {
+    @Test
+    void headingsBecomeHashLines() {
+        assertEquals("# Top\n## Land claims\nText under it.\n",
+            WikitextConverter.toText("= Top =\n== Land [[Claim|claims]] ==\nText under it."));
+    }
+
+    @Test
+    void linksAndFormattingKeepTheirText() {
+        assertEquals("Use a golden shovel on the spawn shop and read the guide.\n",
+            WikitextConverter.toText("Use a '''golden''' [[Shovel|shovel]] on the [[spawn]] ''[[:Shop|shop]]'' "
+                + "and read [https://example.org/guide the guide][//example.org/bare]."));
+    }
+
+    @Test
+    void dropsTemplatesTablesRefsAndMedia() {
+        String wikitext = "{{Infobox|name={{PAGENAME}}|image=x.png}}\n"
+            + "Ranks cost money.<ref name=\"a\">Shop prices</ref><ref name=\"b\"/> <!-- old price -->\n"
+            + "{|\n| cell\n{|\n| nested\n|}\n|}\n"
+            + "[[File:Rank.png|thumb|A [[VIP]] rank]]__NOTOC__\n"
+            + "[[Category:Ranks]]\n"
+            + "After the table.";
+        assertEquals("Ranks cost money.\nAfter the table.\n", WikitextConverter.toText(wikitext));
+    }
+
+    @Test
+    void listMarkersAndInlineHtmlAreStripped() {
+        assertEquals("First item\nNumbered item\nLine one line two & more\n",
+            WikitextConverter.toText("* First item\n## Numbered item\n: Line one<br/>line <span>two</span> &amp; more"));
+    }
+}